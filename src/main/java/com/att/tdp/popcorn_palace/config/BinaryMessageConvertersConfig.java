@@ -0,0 +1,30 @@
+package com.att.tdp.popcorn_palace.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Lets every controller also read and write CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile})
+ * when the client asks for it in {@code Accept} or {@code Content-Type}. JSON stays the default.
+ * <p>
+ * Both converters are built from Spring Boot's Jackson builder, so they share the JSON mapper's settings
+ * (date format, modules, spring.jackson.* properties) and the binary payloads carry the same fields as the JSON ones.
+ */
+@Configuration
+public class BinaryMessageConvertersConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,37 @@
+package com.att.tdp.popcorn_palace.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Serves every read of a request from the primary when the client sends {@code X-Read-Your-Writes: true},
+ * e.g. right after it changed something and must not see a lagging replica.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Read-Your-Writes";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!Boolean.parseBoolean(request.getHeader(HEADER))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try {
+            ReadWriteRoutingDataSource.onPrimary(() -> {
+                chain.doFilter(request, response);
+                return null;
+            });
+        } catch (ServletException | IOException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ServletException(ex);
+        }
+    }
+}
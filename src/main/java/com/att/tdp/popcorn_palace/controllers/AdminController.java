@@ -0,0 +1,128 @@
+package com.att.tdp.popcorn_palace.controllers;
+
+import com.att.tdp.popcorn_palace.services.AdmissionControlService;
+import com.att.tdp.popcorn_palace.services.ShowtimeArchiveService;
+import com.att.tdp.popcorn_palace.services.WaitingRoomService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final ShowtimeArchiveService showtimeArchiveService;
+    private final AdmissionControlService admissionControlService;
+    private final WaitingRoomService waitingRoomService;
+
+    public AdminController(ShowtimeArchiveService showtimeArchiveService,
+                           AdmissionControlService admissionControlService,
+                           WaitingRoomService waitingRoomService) {
+        this.showtimeArchiveService = showtimeArchiveService;
+        this.admissionControlService = admissionControlService;
+        this.waitingRoomService = waitingRoomService;
+    }
+
+    @PostMapping("/archive/showtimes")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ShowtimeArchiveService.ArchiveProgress startArchive(@Valid @RequestBody ArchiveRequest request) {
+        return showtimeArchiveService.start(request.getCutoff(), request.getChunkSize(), request.getPauseMillis());
+    }
+
+    @GetMapping("/archive/showtimes")
+    public ShowtimeArchiveService.ArchiveProgress getArchiveProgress() {
+        return showtimeArchiveService.getProgress();
+    }
+
+    @DeleteMapping("/archive/showtimes")
+    public ShowtimeArchiveService.ArchiveProgress cancelArchive() {
+        return showtimeArchiveService.cancel();
+    }
+
+    @GetMapping("/admission/showtimes/{showtimeId}")
+    public AdmissionControlService.AdmissionLimits getAdmissionLimits(@PathVariable Long showtimeId) {
+        return admissionControlService.getLimits(showtimeId);
+    }
+
+    // Takes effect for the next request; buckets keep the tokens they have.
+    @PutMapping("/admission/showtimes/{showtimeId}")
+    public AdmissionControlService.AdmissionLimits setAdmissionLimits(@PathVariable Long showtimeId,
+                                                                      @Valid @RequestBody AdmissionLimitsRequest request) {
+        return admissionControlService.setLimits(showtimeId, new AdmissionControlService.AdmissionLimits(
+                limit(request.getUserRate(), request.getUserBurst()),
+                limit(request.getShowtimeRate(), request.getShowtimeBurst())));
+    }
+
+    @DeleteMapping("/admission/showtimes/{showtimeId}")
+    public AdmissionControlService.AdmissionLimits resetAdmissionLimits(@PathVariable Long showtimeId) {
+        return admissionControlService.resetLimits(showtimeId);
+    }
+
+    @GetMapping("/waiting-room/showtimes/{showtimeId}")
+    public WaitingRoomService.RoomStatus getWaitingRoom(@PathVariable Long showtimeId) {
+        return waitingRoomService.getStatus(showtimeId);
+    }
+
+    // Opens the showtime's waiting room, or changes the rate bounds of an open one without touching its queue.
+    @PutMapping("/waiting-room/showtimes/{showtimeId}")
+    public WaitingRoomService.RoomStatus openWaitingRoom(@PathVariable Long showtimeId,
+                                                         @Valid @RequestBody WaitingRoomRequest request) {
+        return waitingRoomService.open(showtimeId, request.getMinRate(), request.getMaxRate());
+    }
+
+    @DeleteMapping("/waiting-room/showtimes/{showtimeId}")
+    public WaitingRoomService.RoomStatus closeWaitingRoom(@PathVariable Long showtimeId) {
+        waitingRoomService.close(showtimeId);
+        return waitingRoomService.getStatus(showtimeId);
+    }
+
+    // No rate means no limit; the burst defaults to one request.
+    private static AdmissionControlService.Limit limit(Double rate, Integer burst) {
+        return rate == null ? null : new AdmissionControlService.Limit(rate, burst == null ? 1 : burst);
+    }
+
+    // DTO
+    @Data
+    public static class ArchiveRequest {
+        @NotNull(message = "Cutoff is required")
+        private LocalDateTime cutoff;
+
+        @Min(value = 1, message = "Chunk size must be at least 1")
+        private Integer chunkSize;
+
+        @Min(value = 0, message = "Pause must not be negative")
+        private Long pauseMillis;
+    }
+
+    // DTO
+    @Data
+    public static class AdmissionLimitsRequest {
+        @DecimalMin(value = "0.001", message = "User rate must be at least 0.001 requests per second")
+        private Double userRate;
+
+        @Min(value = 1, message = "User burst must be at least 1")
+        private Integer userBurst;
+
+        @DecimalMin(value = "0.001", message = "Showtime rate must be at least 0.001 requests per second")
+        private Double showtimeRate;
+
+        @Min(value = 1, message = "Showtime burst must be at least 1")
+        private Integer showtimeBurst;
+    }
+
+    // DTO
+    @Data
+    public static class WaitingRoomRequest {
+        @DecimalMin(value = "0.1", message = "Minimum rate must be at least 0.1 users per second")
+        private Double minRate;
+
+        @DecimalMin(value = "0.1", message = "Maximum rate must be at least 0.1 users per second")
+        private Double maxRate;
+    }
+}
@@ -1,13 +1,21 @@
 package com.att.tdp.popcorn_palace.controllers;
 
 import com.att.tdp.popcorn_palace.entities.Booking;
+import com.att.tdp.popcorn_palace.exceptions.GlobalExceptionHandler;
+import com.att.tdp.popcorn_palace.services.AdmissionControlService;
+import com.att.tdp.popcorn_palace.services.BookingIdempotencyService;
 import com.att.tdp.popcorn_palace.services.BookingService;
+import com.att.tdp.popcorn_palace.services.WaitingRoomService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -16,18 +24,77 @@ import java.util.UUID;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final BookingIdempotencyService bookingIdempotencyService;
+    private final AdmissionControlService admissionControlService;
+    private final WaitingRoomService waitingRoomService;
 
-    public BookingController(BookingService bookingService) {
+    public BookingController(BookingService bookingService,
+                             BookingIdempotencyService bookingIdempotencyService,
+                             AdmissionControlService admissionControlService,
+                             WaitingRoomService waitingRoomService) {
         this.bookingService = bookingService;
+        this.bookingIdempotencyService = bookingIdempotencyService;
+        this.admissionControlService = admissionControlService;
+        this.waitingRoomService = waitingRoomService;
     }
 
     @PostMapping
-    public Map<String, UUID> bookTicket(@Valid @RequestBody BookingRequest request) {
-        Booking booking = bookingService.bookTicket(
+    public ResponseEntity<?> bookTicket(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                        @RequestHeader(value = WaitingRoomService.TOKEN_HEADER, required = false) String queueToken,
+                                        @Valid @RequestBody BookingRequest request) {
+        // Showtimes with a waiting room only take bookings from users whose place in the queue was admitted.
+        WaitingRoomService.Admission admission = waitingRoomService.admit(
+                request.getShowtimeId(), request.getUserId(), queueToken);
+        if (!admission.isAllowed()) {
+            return WaitingRoomController.notAdmitted(admission);
+        }
+
+        // Requests over the user's or the showtime's rate are turned away before any database work.
+        long retryAfterNanos = admissionControlService.tryAdmit(request.getShowtimeId(), request.getUserId());
+        if (retryAfterNanos > 0) {
+            return GlobalExceptionHandler.tooManyRequests(retryAfterNanos);
+        }
+
+        // Retries that carry the same Idempotency-Key get the original booking id back.
+        UUID bookingId;
+        if (idempotencyKey != null) {
+            bookingId = bookingIdempotencyService.bookTicket(
+                    idempotencyKey,
+                    request.getShowtimeId(),
+                    request.getSeatNumber(),
+                    request.getUserId());
+        } else {
+            bookingId = bookingService.bookTicket(
+                    request.getShowtimeId(),
+                    request.getSeatNumber(),
+                    request.getUserId()).getBookingId();
+        }
+
+        // Successful bookings are the throughput a waiting room admits users at; conflicts and errors don't count.
+        waitingRoomService.recordBooking(request.getShowtimeId());
+        return ResponseEntity.ok(Map.of("bookingId", bookingId));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> bookTickets(@RequestHeader(value = WaitingRoomService.TOKEN_HEADER, required = false) String queueToken,
+                                         @Valid @RequestBody BatchBookingRequest request) {
+        WaitingRoomService.Admission admission = waitingRoomService.admit(
+                request.getShowtimeId(), request.getUserId(), queueToken);
+        if (!admission.isAllowed()) {
+            return WaitingRoomController.notAdmitted(admission);
+        }
+
+        long retryAfterNanos = admissionControlService.tryAdmit(request.getShowtimeId(), request.getUserId());
+        if (retryAfterNanos > 0) {
+            return GlobalExceptionHandler.tooManyRequests(retryAfterNanos);
+        }
+
+        List<Booking> bookings = bookingService.bookTickets(
                 request.getShowtimeId(),
-                request.getSeatNumber(),
+                request.getSeatNumbers(),
                 request.getUserId());
-        return Map.of("bookingId", booking.getBookingId());
+        waitingRoomService.recordBooking(request.getShowtimeId());
+        return ResponseEntity.ok(Map.of("bookingIds", bookings.stream().map(Booking::getBookingId).toList()));
     }
 
     // DTO
@@ -42,4 +109,18 @@ public class BookingController {
         @NotNull(message = "User ID is required")
         private UUID userId;
     }
+
+    // DTO
+    @Data
+    public static class BatchBookingRequest {
+        @NotNull(message = "Showtime ID is required")
+        private Long showtimeId;
+
+        @NotEmpty(message = "At least one seat number is required")
+        @Size(max = 100, message = "At most 100 seats can be booked at once")
+        private List<@NotNull @Min(value = 1, message = "Seat number must be at least 1") Integer> seatNumbers;
+
+        @NotNull(message = "User ID is required")
+        private UUID userId;
+    }
 }
@@ -1,15 +1,22 @@
 package com.att.tdp.popcorn_palace.controllers;
 
 import com.att.tdp.popcorn_palace.entities.Movie;
+import com.att.tdp.popcorn_palace.services.MovieSearchIndex;
 import com.att.tdp.popcorn_palace.services.MovieService;
 import com.att.tdp.popcorn_palace.util.InputUtils;
+import com.att.tdp.popcorn_palace.util.JsonStreamWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.Data;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -17,14 +24,58 @@ import java.util.List;
 public class MovieController {
 
     private final MovieService movieService;
+    private final ObjectMapper objectMapper;
 
-    public MovieController(MovieService movieService) {
+    public MovieController(MovieService movieService, ObjectMapper objectMapper) {
         this.movieService = movieService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/all")
-    public List<Movie> getAllMovies() {
-        return movieService.getAllMovies();
+    public ResponseEntity<?> getAllMovies(@RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Without paging parameters, serve the pre-serialized catalog. A matching If-None-Match gets a 304.
+        if (after == null && limit == null) {
+            return movieService.getCatalogSnapshot().toResponse(acceptEncoding);
+        }
+        return ResponseEntity.ok(movieService.getMovies(after, limit));
+    }
+
+    // Binary formats are serialized per request.
+    @GetMapping(value = "/all", produces = {MediaType.APPLICATION_CBOR_VALUE, "application/x-jackson-smile"})
+    public List<Movie> getAllMoviesAs(@RequestParam(required = false) Long after,
+                                      @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return movieService.getAllMovies();
+        }
+        return movieService.getMovies(after, limit);
+    }
+
+    @GetMapping("/search")
+    public List<MovieSearchIndex.Hit> searchMovies(@RequestParam String q,
+                                                   @RequestParam(required = false) Integer limit) {
+        return movieService.searchMovies(q, limit);
+    }
+
+    // Rows are written to the response as they are read, as NDJSON or one JSON array. Spring picks the handler from
+    // the Accept header, quality values included; the array one also produces */* so it serves clients that take
+    // anything.
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.ALL_VALUE})
+    public void streamMovies(HttpServletResponse response) throws IOException {
+        streamMovies(response, false);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamMoviesAsNdjson(HttpServletResponse response) throws IOException {
+        streamMovies(response, true);
+    }
+
+    private void streamMovies(HttpServletResponse response, boolean ndjson) throws IOException {
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        try (JsonStreamWriter writer = new JsonStreamWriter(objectMapper, response.getOutputStream(), ndjson)) {
+            movieService.streamMovies(writer);
+        }
     }
 
     @PostMapping
@@ -0,0 +1,74 @@
+package com.att.tdp.popcorn_palace.controllers;
+
+import com.att.tdp.popcorn_palace.entities.Booking;
+import com.att.tdp.popcorn_palace.services.SeatHoldService;
+import com.att.tdp.popcorn_palace.services.WaitingRoomService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/bookings/holds")
+public class SeatHoldController {
+
+    private final SeatHoldService seatHoldService;
+    private final WaitingRoomService waitingRoomService;
+
+    public SeatHoldController(SeatHoldService seatHoldService, WaitingRoomService waitingRoomService) {
+        this.seatHoldService = seatHoldService;
+        this.waitingRoomService = waitingRoomService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> holdSeats(@RequestHeader(value = WaitingRoomService.TOKEN_HEADER, required = false) String queueToken,
+                                       @Valid @RequestBody HoldRequest request) {
+        // Holding seats is a way into the booking path, so a waiting room guards it too.
+        WaitingRoomService.Admission admission = waitingRoomService.admit(
+                request.getShowtimeId(), request.getUserId(), queueToken);
+        if (!admission.isAllowed()) {
+            return WaitingRoomController.notAdmitted(admission);
+        }
+
+        SeatHoldService.SeatHold hold = seatHoldService.holdSeats(
+                request.getShowtimeId(),
+                request.getSeatNumbers(),
+                request.getUserId());
+        return ResponseEntity.ok(Map.of("holdId", hold.holdId(), "expiresAt", hold.expiresAt()));
+    }
+
+    @PostMapping("/{holdId}/confirm")
+    public Map<String, List<UUID>> confirmHold(@PathVariable UUID holdId) {
+        List<Booking> bookings = seatHoldService.confirmHold(holdId);
+        return Map.of("bookingIds", bookings.stream().map(Booking::getBookingId).toList());
+    }
+
+    @DeleteMapping("/{holdId}")
+    @ResponseStatus(HttpStatus.OK)
+    public void releaseHold(@PathVariable UUID holdId) {
+        seatHoldService.releaseHold(holdId);
+    }
+
+    // DTO
+    @Data
+    public static class HoldRequest {
+        @NotNull(message = "Showtime ID is required")
+        private Long showtimeId;
+
+        @NotEmpty(message = "At least one seat number is required")
+        @Size(max = 100, message = "At most 100 seats can be held at once")
+        private List<@NotNull @Min(value = 1, message = "Seat number must be at least 1") Integer> seatNumbers;
+
+        @NotNull(message = "User ID is required")
+        private UUID userId;
+    }
+}
@@ -1,29 +1,68 @@
 package com.att.tdp.popcorn_palace.controllers;
 
 import com.att.tdp.popcorn_palace.entities.Showtime;
+import com.att.tdp.popcorn_palace.services.SeatStreamService;
 import com.att.tdp.popcorn_palace.services.ShowtimeService;
 import com.att.tdp.popcorn_palace.util.InputUtils;
+import com.att.tdp.popcorn_palace.util.SeatBitmap;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import lombok.Data;
 import jakarta.validation.Valid;
 
-
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/showtimes")
 public class ShowtimeController {
 
+    public static final int MAX_BULK_SHOWTIMES = 10_000;
+
     private final ShowtimeService showtimeService;
+    private final SeatStreamService seatStreamService;
+    private final ObjectReader showtimeRequestReader;
+    private final Validator validator;
 
-    public ShowtimeController(ShowtimeService showtimeService) {
+    public ShowtimeController(ShowtimeService showtimeService, SeatStreamService seatStreamService,
+                              ObjectMapper objectMapper, Validator validator) {
         this.showtimeService = showtimeService;
+        this.seatStreamService = seatStreamService;
+        this.showtimeRequestReader = objectMapper.readerFor(ShowtimeRequest.class);
+        this.validator = validator;
+    }
+
+    @GetMapping
+    public ShowtimeService.ShowtimePage searchShowtimes(@RequestParam(required = false) Long movieId,
+                                                        @RequestParam(required = false) String theater,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                        @RequestParam(required = false) String after,
+                                                        @RequestParam(required = false) Integer limit) {
+        // Theater names are stored normalized, so normalize the filter the same way.
+        String theaterName = theater == null ? null : InputUtils.normalizeString(theater);
+        return showtimeService.searchShowtimes(movieId, theaterName, from, to, after, limit);
     }
 
     @GetMapping("/{showtimeId}")
@@ -31,6 +70,19 @@ public class ShowtimeController {
         return showtimeService.getShowtime(showtimeId);
     }
 
+    @GetMapping("/{showtimeId}/seats")
+    public SeatAvailability getSeatAvailability(@PathVariable Long showtimeId) {
+        return availability(showtimeId, showtimeService.getSeatAvailability(showtimeId));
+    }
+
+    @GetMapping(value = "/{showtimeId}/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeatChanges(@PathVariable Long showtimeId) {
+        // The stream only announces committed bookings, so it starts from them too: held seats and claims that may
+        // still roll back would otherwise stay taken for the subscriber. Fails with 404 for an unknown showtime.
+        return seatStreamService.subscribe(showtimeId,
+                () -> availability(showtimeId, showtimeService.getBookedSeats(showtimeId)));
+    }
+
     @PostMapping
     public Showtime addShowtime(@Valid @RequestBody ShowtimeRequest request) {
         // Normalize and validate the theater name.
@@ -50,6 +102,53 @@ public class ShowtimeController {
         return showtimeService.addShowtime(showtime, request.getMovieId(), normalizedTheater);
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<ShowtimeService.BulkShowtimeResult> addShowtimes(HttpServletRequest httpRequest) throws IOException {
+        // Accepts either a JSON array or newline-delimited JSON; both are read as a stream of requests.
+        List<ShowtimeRequest> requests = new ArrayList<>();
+        try (MappingIterator<ShowtimeRequest> iterator = showtimeRequestReader.readValues(httpRequest.getInputStream())) {
+            while (iterator.hasNextValue()) {
+                if (requests.size() == MAX_BULK_SHOWTIMES) {
+                    throw new IllegalArgumentException("At most " + MAX_BULK_SHOWTIMES + " showtimes can be imported at once");
+                }
+                requests.add(iterator.nextValue());
+            }
+        } catch (JsonProcessingException ex) {
+            throw new HttpMessageNotReadableException(ex.getOriginalMessage(), ex, new ServletServerHttpRequest(httpRequest));
+        }
+
+        // Validate and normalize every item. Invalid items are reported without failing the rest of the import.
+        List<ShowtimeService.BulkShowtime> items = new ArrayList<>(requests.size());
+        List<String> errors = new ArrayList<>(requests.size());
+        for (ShowtimeRequest request : requests) {
+            Set<ConstraintViolation<ShowtimeRequest>> violations = validator.validate(request);
+            String normalizedTheater = InputUtils.normalizeString(request.getTheater());
+            if (!violations.isEmpty()) {
+                items.add(null);
+                errors.add(violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            } else if (normalizedTheater == null || normalizedTheater.isEmpty()) {
+                items.add(null);
+                errors.add("Theater name must not be empty");
+            } else {
+                items.add(new ShowtimeService.BulkShowtime(request.getMovieId(), normalizedTheater,
+                        request.getPrice(), request.getStartTime(), request.getEndTime()));
+                errors.add(null);
+            }
+        }
+
+        // Add the valid showtimes to the database and merge in the validation errors.
+        List<ShowtimeService.BulkShowtimeResult> results = new ArrayList<>(showtimeService.addShowtimes(items));
+        for (int i = 0; i < results.size(); i++) {
+            if (errors.get(i) != null) {
+                results.set(i, ShowtimeService.BulkShowtimeResult.rejected(i, errors.get(i)));
+            }
+        }
+        return results;
+    }
+
     @PostMapping("/update/{showtimeId}")
     public ResponseEntity<Void> updateShowtime(@PathVariable Long showtimeId, @Valid @RequestBody ShowtimeRequest request) {
         // Normalize and validate theater name.
@@ -77,6 +176,11 @@ public class ShowtimeController {
         showtimeService.deleteShowtime(showtimeId);
     }
 
+    private static SeatAvailability availability(Long showtimeId, SeatBitmap.Snapshot snapshot) {
+        return new SeatAvailability(showtimeId, snapshot.capacity(), snapshot.available(),
+                "bitset-base64", snapshot.bookedSeats());
+    }
+
     // DTO
     @Data
     public static class ShowtimeRequest {
@@ -98,4 +202,8 @@ public class ShowtimeController {
         @NotNull(message = "End time is required")
         private LocalDateTime endTime;
     }
+
+    // Response DTO. Bit (n - 1) of the decoded bookedSeats bytes is set if seat n is taken.
+    public record SeatAvailability(Long showtimeId, int capacity, int available, String encoding, String bookedSeats) {
+    }
 }
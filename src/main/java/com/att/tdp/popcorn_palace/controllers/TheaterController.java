@@ -3,13 +3,21 @@ package com.att.tdp.popcorn_palace.controllers;
 import com.att.tdp.popcorn_palace.entities.Theater;
 import com.att.tdp.popcorn_palace.services.TheaterService;
 import com.att.tdp.popcorn_palace.util.InputUtils;
+import com.att.tdp.popcorn_palace.util.JsonStreamWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -17,9 +25,11 @@ import java.util.List;
 public class TheaterController {
 
     private final TheaterService theaterService;
+    private final ObjectMapper objectMapper;
 
-    public TheaterController(TheaterService theaterService) {
+    public TheaterController(TheaterService theaterService, ObjectMapper objectMapper) {
         this.theaterService = theaterService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -40,8 +50,44 @@ public class TheaterController {
     }
 
     @GetMapping("/all")
-    public List<Theater> getAllTheaters() {
-        return theaterService.getAllTheaters();
+    public ResponseEntity<?> getAllTheaters(@RequestParam(required = false) Long after,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Without paging parameters, serve the pre-serialized catalog. A matching If-None-Match gets a 304.
+        if (after == null && limit == null) {
+            return theaterService.getCatalogSnapshot().toResponse(acceptEncoding);
+        }
+        return ResponseEntity.ok(theaterService.getTheaters(after, limit));
+    }
+
+    // Binary formats are serialized per request.
+    @GetMapping(value = "/all", produces = {MediaType.APPLICATION_CBOR_VALUE, "application/x-jackson-smile"})
+    public List<Theater> getAllTheatersAs(@RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return theaterService.getAllTheaters();
+        }
+        return theaterService.getTheaters(after, limit);
+    }
+
+    // Rows are written to the response as they are read, as NDJSON or one JSON array. Spring picks the handler from
+    // the Accept header, quality values included; the array one also produces */* so it serves clients that take
+    // anything.
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.ALL_VALUE})
+    public void streamTheaters(HttpServletResponse response) throws IOException {
+        streamTheaters(response, false);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamTheatersAsNdjson(HttpServletResponse response) throws IOException {
+        streamTheaters(response, true);
+    }
+
+    private void streamTheaters(HttpServletResponse response, boolean ndjson) throws IOException {
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        try (JsonStreamWriter writer = new JsonStreamWriter(objectMapper, response.getOutputStream(), ndjson)) {
+            theaterService.streamTheaters(writer);
+        }
     }
 
     @GetMapping("/{id}")
@@ -82,6 +128,7 @@ public class TheaterController {
     @Data
     public static class TheaterRequest {
         @Min(value = 1, message = "Capacity must be at least 1")
+        @Max(value = Theater.MAX_CAPACITY, message = "Capacity must be at most " + Theater.MAX_CAPACITY)
         private int capacity;
 
         @NotBlank(message = "Name is required")
@@ -0,0 +1,64 @@
+package com.att.tdp.popcorn_palace.controllers;
+
+import com.att.tdp.popcorn_palace.exceptions.GlobalExceptionHandler;
+import com.att.tdp.popcorn_palace.services.WaitingRoomService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/bookings/queue")
+public class WaitingRoomController {
+
+    public static final String QUEUE_TOKEN_REQUIRED = "QUEUE_TOKEN_REQUIRED";
+    public static final String QUEUED = "QUEUED";
+
+    private final WaitingRoomService waitingRoomService;
+
+    public WaitingRoomController(WaitingRoomService waitingRoomService) {
+        this.waitingRoomService = waitingRoomService;
+    }
+
+    @PostMapping
+    public WaitingRoomService.QueueTicket joinQueue(@Valid @RequestBody JoinRequest request) {
+        return waitingRoomService.join(request.getShowtimeId(), request.getUserId());
+    }
+
+    // Served from memory only, so clients can poll it as often as its retryAfterMillis suggests.
+    @GetMapping
+    public ResponseEntity<?> getPosition(@RequestHeader(WaitingRoomService.TOKEN_HEADER) String token) {
+        WaitingRoomService.QueueTicket ticket = waitingRoomService.poll(token);
+        if (ticket == null) {
+            return GlobalExceptionHandler.forbidden(QUEUE_TOKEN_REQUIRED,
+                    "The queue token is invalid or expired, or the waiting room has closed.");
+        }
+        return ResponseEntity.ok(ticket);
+    }
+
+    /**
+     * The response for a booking request the waiting room did not let through.
+     */
+    static ResponseEntity<?> notAdmitted(WaitingRoomService.Admission admission) {
+        if (admission == WaitingRoomService.Admission.WAITING) {
+            return GlobalExceptionHandler.tooManyRequests(QUEUED,
+                    "This showtime has a waiting room and your place has not been admitted yet.", 1);
+        }
+        return GlobalExceptionHandler.forbidden(QUEUE_TOKEN_REQUIRED,
+                "This showtime has a waiting room. Join it at POST /bookings/queue and send the token in the "
+                        + WaitingRoomService.TOKEN_HEADER + " header.");
+    }
+
+    // DTO
+    @Data
+    public static class JoinRequest {
+        @NotNull(message = "Showtime ID is required")
+        private Long showtimeId;
+
+        @NotNull(message = "User ID is required")
+        private UUID userId;
+    }
+}
@@ -1,8 +1,10 @@
 package com.att.tdp.popcorn_palace.entities;
 
+import com.att.tdp.popcorn_palace.util.TimeOrderedUuid;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
 import java.util.UUID;
 
 @Entity
@@ -20,6 +22,7 @@ public class Booking {
 
     @Id
     @GeneratedValue
+    @UuidGenerator(algorithm = TimeOrderedUuid.class) // Time-ordered, so new rows append to the primary key index
     private UUID bookingId; // Auto generated
 
     private int seatNumber;
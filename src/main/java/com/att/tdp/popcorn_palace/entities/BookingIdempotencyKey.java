@@ -0,0 +1,28 @@
+package com.att.tdp.popcorn_palace.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "booking_idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingIdempotencyKey {
+
+    @Id
+    @Column(length = 300)
+    private String idempotencyKey; // Client key scoped by user id
+
+    @Column(nullable = false)
+    private UUID bookingId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(length = 100)
+    private String requestFingerprint; // The request the key was used for; null for keys stored before it was kept
+}
@@ -2,8 +2,12 @@ package com.att.tdp.popcorn_palace.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "movies") // Read constantly, changed rarely
 @Table(name = "movies", uniqueConstraints = @UniqueConstraint(columnNames = "title"))
 @Data
 @NoArgsConstructor
@@ -11,7 +15,8 @@ import lombok.*;
 public class Movie {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movies_seq")
+    @SequenceGenerator(name = "movies_seq", sequenceName = "movies_seq", allocationSize = 50) // Pooled ids allow batched inserts
     private Long id; // Auto generated
 
     @Column(unique = true)
@@ -15,7 +15,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 public class Showtime {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "showtimes_seq")
+    @SequenceGenerator(name = "showtimes_seq", sequenceName = "showtimes_seq", allocationSize = 50) // Pooled ids allow batched inserts
     private Long id; // Auto generated
 
     @ManyToOne
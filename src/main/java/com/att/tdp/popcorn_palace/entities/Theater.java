@@ -1,9 +1,14 @@
 package com.att.tdp.popcorn_palace.entities;
 
+import com.att.tdp.popcorn_palace.util.SeatBitmap;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "theaters") // Read constantly, changed rarely
 @Table(name = "theaters", uniqueConstraints = @UniqueConstraint(columnNames = "name"))
 @Data
 @NoArgsConstructor
@@ -11,9 +16,11 @@ import lombok.*;
 public class Theater {
 
     public static final int DEFAULT_CAPACITY = 100; // Default value to use if not set in creation time
+    public static final int MAX_CAPACITY = SeatBitmap.MAX_CAPACITY; // Every showtime's seats are kept in a bitmap
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "theaters_seq")
+    @SequenceGenerator(name = "theaters_seq", sequenceName = "theaters_seq", allocationSize = 50) // Pooled ids allow batched inserts
     private Long id; // Auto generated
 
     // Total number of seats in the theater.
@@ -0,0 +1,22 @@
+package com.att.tdp.popcorn_palace.exceptions;
+
+/**
+ * The request lost to the current state of the data: a taken seat, an overlapping showtime. Answered with 409 and
+ * a machine-readable code, so clients can tell it apart from a server fault and don't retry it as one.
+ * <p>
+ * Conflicts are expected, frequent under contention and fully described by their message, so no stack trace is
+ * captured. That also makes instances immutable and safe to share.
+ */
+public class ConflictException extends RuntimeException {
+
+    private final String code;
+
+    public ConflictException(String code, String message) {
+        super(message, null, false, false);
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
@@ -1,6 +1,7 @@
 package com.att.tdp.popcorn_palace.exceptions;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -11,11 +12,18 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    // Body of a 409 or 429 response.
+    public record ErrorBody(String code, String message) {
+    }
+
+    public static final String RATE_LIMITED = "RATE_LIMITED";
+
     // Handle ResourceNotFoundException
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<String> handleResourceNotFoundException(ResourceNotFoundException ex) {
@@ -28,10 +36,28 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
-    // Handle OverlappingShowtimeException
-    @ExceptionHandler(OverlappingShowtimeException.class)
-    public ResponseEntity<String> handleOverlappingShowtimeException(OverlappingShowtimeException ex) {
-        return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    // Handle ConflictException (taken seats, overlapping showtimes) with a code clients can act on
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ErrorBody> handleConflictException(ConflictException ex) {
+        return new ResponseEntity<>(new ErrorBody(ex.getCode(), ex.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    // The 429 response for a request turned away by admission control. Retry-After is in whole seconds, rounded up.
+    public static ResponseEntity<ErrorBody> tooManyRequests(long retryAfterNanos) {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999));
+        return tooManyRequests(RATE_LIMITED, "Too many booking requests, retry in " + retryAfterSeconds + " s.",
+                retryAfterSeconds);
+    }
+
+    public static ResponseEntity<ErrorBody> tooManyRequests(String code, String message, long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(new ErrorBody(code, message));
+    }
+
+    // The 403 response for a booking of a showtime with a waiting room, without an admitted queue token.
+    public static ResponseEntity<ErrorBody> forbidden(String code, String message) {
+        return new ResponseEntity<>(new ErrorBody(code, message), HttpStatus.FORBIDDEN);
     }
 
     // Handle UniqueConstraintViolationException (custom exception)
@@ -0,0 +1,13 @@
+package com.att.tdp.popcorn_palace.exceptions;
+
+public class IdempotencyKeyReusedException extends ConflictException {
+
+    public static final String CODE = "IDEMPOTENCY_KEY_REUSED";
+
+    public static final IdempotencyKeyReusedException INSTANCE = new IdempotencyKeyReusedException(
+            "This Idempotency-Key was already used for a different booking request. Use a new key for a new request.");
+
+    public IdempotencyKeyReusedException(String message) {
+        super(CODE, message);
+    }
+}
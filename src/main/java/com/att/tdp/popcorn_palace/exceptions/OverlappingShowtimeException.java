@@ -1,7 +1,17 @@
 package com.att.tdp.popcorn_palace.exceptions;
 
-public class OverlappingShowtimeException extends RuntimeException {
+public class OverlappingShowtimeException extends ConflictException {
+
+    public static final String CODE = "SHOWTIME_OVERLAP";
+
+    public static final OverlappingShowtimeException CREATED =
+            new OverlappingShowtimeException("This showtime overlaps with an existing one in the same theater.");
+    public static final OverlappingShowtimeException IMPORTED =
+            new OverlappingShowtimeException("Imported showtimes overlap with an existing one in the same theater.");
+    public static final OverlappingShowtimeException UPDATED =
+            new OverlappingShowtimeException("Updated showtime overlaps with an existing one in the same theater.");
+
     public OverlappingShowtimeException(String message) {
-        super(message);
+        super(CODE, message);
     }
 }
@@ -0,0 +1,30 @@
+package com.att.tdp.popcorn_palace.exceptions;
+
+public class SeatTakenException extends ConflictException {
+
+    public static final String CODE = "SEAT_TAKEN";
+
+    // One shared instance per seat number for single-seat conflicts, created on first use.
+    // A racy write only means an extra instance.
+    private static final SeatTakenException[] SEATS = new SeatTakenException[4096];
+
+    public SeatTakenException(String message) {
+        super(CODE, message);
+    }
+
+    public static SeatTakenException forSeat(int seatNumber) {
+        if (seatNumber < 1 || seatNumber >= SEATS.length) {
+            return new SeatTakenException(message(seatNumber));
+        }
+        SeatTakenException ex = SEATS[seatNumber];
+        if (ex == null) {
+            ex = new SeatTakenException(message(seatNumber));
+            SEATS[seatNumber] = ex;
+        }
+        return ex;
+    }
+
+    private static String message(int seatNumber) {
+        return "Seat number " + seatNumber + " is already booked for this showtime.";
+    }
+}
@@ -0,0 +1,123 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import com.att.tdp.popcorn_palace.entities.Booking;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Repository
+public class BookingBatchRepository {
+
+    private static final String INSERT_BOOKING =
+            "INSERT INTO bookings (booking_id, seat_number, user_id, showtime_id) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_BOOKING_IGNORING_CONFLICTS = INSERT_BOOKING + " ON CONFLICT DO NOTHING";
+
+    // Keeps a multi-row insert well below PostgreSQL's limit of 65535 bind parameters.
+    static final int MAX_ROWS_PER_INSERT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    // Whether the database is PostgreSQL, looked up on first use.
+    private volatile Boolean postgres;
+
+    public BookingBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Insert all bookings with a single JDBC batch. Booking IDs must already be assigned.
+    public void insertAll(List<Booking> bookings) {
+        jdbcTemplate.batchUpdate(INSERT_BOOKING, bookings, bookings.size(), (ps, booking) -> {
+            ps.setObject(1, booking.getBookingId());
+            ps.setInt(2, booking.getSeatNumber());
+            ps.setObject(3, booking.getUserId());
+            ps.setLong(4, booking.getShowtime().getId());
+        });
+    }
+
+    /**
+     * Inserts all bookings, skipping rows that hit a unique constraint (an existing booking id, or a seat that is
+     * already booked). On PostgreSQL this is one multi-row insert per {@value #MAX_ROWS_PER_INSERT} bookings that
+     * returns the ids it wrote; elsewhere it is a JDBC batch judged by its update counts. Must run in a transaction,
+     * so that rows the driver gives no count for can be looked up on the same connection.
+     *
+     * @return for each booking, whether it was inserted
+     */
+    public boolean[] insertAllIgnoringConflicts(List<Booking> bookings) {
+        return isPostgres() ? insertReturningIds(bookings) : insertCheckingCounts(bookings);
+    }
+
+    private boolean[] insertReturningIds(List<Booking> bookings) {
+        boolean[] inserted = new boolean[bookings.size()];
+        for (int from = 0; from < bookings.size(); from += MAX_ROWS_PER_INSERT) {
+            List<Booking> chunk = bookings.subList(from, Math.min(bookings.size(), from + MAX_ROWS_PER_INSERT));
+            StringBuilder sql = new StringBuilder("INSERT INTO bookings (booking_id, seat_number, user_id, showtime_id) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+            }
+            sql.append(" ON CONFLICT DO NOTHING RETURNING booking_id");
+
+            Object[] args = new Object[chunk.size() * 4];
+            for (int i = 0; i < chunk.size(); i++) {
+                Booking booking = chunk.get(i);
+                args[i * 4] = booking.getBookingId();
+                args[i * 4 + 1] = booking.getSeatNumber();
+                args[i * 4 + 2] = booking.getUserId();
+                args[i * 4 + 3] = booking.getShowtime().getId();
+            }
+            Set<UUID> written = new HashSet<>(jdbcTemplate.queryForList(sql.toString(), UUID.class, args));
+            for (int i = 0; i < chunk.size(); i++) {
+                inserted[from + i] = written.contains(chunk.get(i).getBookingId());
+            }
+        }
+        return inserted;
+    }
+
+    private boolean[] insertCheckingCounts(List<Booking> bookings) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_BOOKING_IGNORING_CONFLICTS, bookings, bookings.size(),
+                (ps, booking) -> {
+                    ps.setObject(1, booking.getBookingId());
+                    ps.setInt(2, booking.getSeatNumber());
+                    ps.setObject(3, booking.getUserId());
+                    ps.setLong(4, booking.getShowtime().getId());
+                });
+        boolean[] inserted = new boolean[bookings.size()];
+        for (int i = 0; i < inserted.length; i++) {
+            // SUCCESS_NO_INFO says nothing about a row skipped by ON CONFLICT, so look the row up.
+            int count = counts[0][i];
+            inserted[i] = count == Statement.SUCCESS_NO_INFO ? exists(bookings.get(i).getBookingId()) : count > 0;
+        }
+        return inserted;
+    }
+
+    private boolean isPostgres() {
+        Boolean postgres = this.postgres;
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+            this.postgres = postgres;
+        }
+        return postgres;
+    }
+
+    /**
+     * Records a booking that was acknowledged but cannot be written to the bookings table. Recording the same
+     * booking again is a no-op.
+     */
+    public void insertDeadLetter(Booking booking, String reason) {
+        jdbcTemplate.update("INSERT INTO booking_dead_letters (booking_id, seat_number, user_id, showtime_id, reason) "
+                        + "VALUES (?, ?, ?, ?, ?) ON CONFLICT DO NOTHING",
+                booking.getBookingId(), booking.getSeatNumber(), booking.getUserId(), booking.getShowtime().getId(),
+                reason.length() > 1000 ? reason.substring(0, 1000) : reason);
+    }
+
+    public boolean exists(UUID bookingId) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings WHERE booking_id = ?", Integer.class, bookingId);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import com.att.tdp.popcorn_palace.entities.BookingIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BookingIdempotencyKeyRepository extends JpaRepository<BookingIdempotencyKey, String> {
+
+    // Forget keys created before the cutoff. Returns the number of keys deleted.
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BookingIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -3,7 +3,10 @@ package com.att.tdp.popcorn_palace.repositories;
 import com.att.tdp.popcorn_palace.entities.Booking;
 import com.att.tdp.popcorn_palace.entities.Showtime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
@@ -14,5 +17,8 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
     // Check if a booking with this showtime exists.
     boolean existsByShowtime(Showtime showtime);
 
+    // Seat numbers already booked for a showtime, used to hydrate the in-memory seat map.
+    @Query("SELECT b.seatNumber FROM Booking b WHERE b.showtime.id = :showtimeId")
+    List<Integer> findSeatNumbersByShowtimeId(@Param("showtimeId") Long showtimeId);
 
 }
@@ -0,0 +1,46 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import com.att.tdp.popcorn_palace.entities.Movie;
+import com.att.tdp.popcorn_palace.entities.Theater;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.function.Consumer;
+
+/**
+ * Reads whole catalog tables through a forward-only JDBC cursor, handing each row to a consumer as it arrives.
+ * Rows are fetched {@code fetchSize} at a time and never become managed entities, so memory stays flat however
+ * large the table is. PostgreSQL only honours the fetch size inside a transaction, so callers must run in one.
+ */
+@Repository
+public class CatalogStreamRepository {
+
+    private static final String SELECT_MOVIES =
+            "SELECT id, title, genre, duration, rating, release_year FROM movies ORDER BY id";
+    private static final String SELECT_THEATERS =
+            "SELECT id, capacity, name FROM theaters ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CatalogStreamRepository(DataSource dataSource,
+                                   @Value("${catalog.stream.fetch-size:500}") int fetchSize) {
+        // A dedicated template, so the fetch size doesn't leak into other JDBC users.
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public void streamMovies(Consumer<? super Movie> consumer) {
+        jdbcTemplate.query(SELECT_MOVIES, rs -> {
+            consumer.accept(new Movie(rs.getLong("id"), rs.getString("title"), rs.getString("genre"),
+                    rs.getInt("duration"), rs.getDouble("rating"), rs.getInt("release_year")));
+        });
+    }
+
+    public void streamTheaters(Consumer<? super Theater> consumer) {
+        jdbcTemplate.query(SELECT_THEATERS, rs -> {
+            consumer.accept(new Theater(rs.getLong("id"), rs.getInt("capacity"), rs.getString("name")));
+        });
+    }
+}
@@ -1,15 +1,24 @@
 package com.att.tdp.popcorn_palace.repositories;
 
 import com.att.tdp.popcorn_palace.entities.Movie;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MovieRepository extends JpaRepository<Movie, Long> {
-    // Find a movie by the title
+    // Find a movie by the title. Results are kept in the query cache until the movies table changes.
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Movie> findByTitle(String title);
 
     // Delete a movie by the title
     void deleteByTitle(String title);
+
+    // Keyset page: the next movies after the given id, in id order.
+    List<Movie> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
@@ -0,0 +1,71 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based statements that move showtimes and their bookings into the archive tables.
+ * All methods must run inside the same transaction for one chunk of showtime ids.
+ */
+@Repository
+public class ShowtimeArchiveRepository {
+
+    // Locking the showtime rows blocks new bookings for them (the foreign key check needs a share lock)
+    // until the chunk commits, so no booking can slip in between the copy and the delete.
+    private static final String LOCK_ENDED_SHOWTIMES =
+            "SELECT id FROM showtimes WHERE end_time < :cutoff ORDER BY end_time, id LIMIT :limit FOR UPDATE";
+
+    private static final String COPY_BOOKINGS =
+            "INSERT INTO bookings_archive (booking_id, seat_number, user_id, showtime_id) " +
+            "SELECT booking_id, seat_number, user_id, showtime_id FROM bookings WHERE showtime_id IN (:ids)";
+    private static final String DELETE_BOOKINGS =
+            "DELETE FROM bookings WHERE showtime_id IN (:ids)";
+
+    private static final String COPY_SHOWTIMES =
+            "INSERT INTO showtimes_archive (id, theater_id, movie_id, price, start_time, end_time) " +
+            "SELECT id, theater_id, movie_id, price, start_time, end_time FROM showtimes WHERE id IN (:ids)";
+    private static final String DELETE_SHOWTIMES =
+            "DELETE FROM showtimes WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ShowtimeArchiveRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Lock the next chunk of showtimes that ended before the cutoff and return their ids.
+    public List<Long> lockEndedShowtimeIds(LocalDateTime cutoff, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoff", cutoff)
+                .addValue("limit", limit);
+        return jdbcTemplate.queryForList(LOCK_ENDED_SHOWTIMES, params, Long.class);
+    }
+
+    // Move the bookings of the given showtimes into the archive. Returns the number of bookings moved.
+    public int archiveBookings(Collection<Long> showtimeIds) {
+        Map<String, Object> params = Map.of("ids", showtimeIds);
+        int copied = jdbcTemplate.update(COPY_BOOKINGS, params);
+        int deleted = jdbcTemplate.update(DELETE_BOOKINGS, params);
+        if (copied != deleted) {
+            throw new IllegalStateException("Archived " + copied + " bookings but deleted " + deleted);
+        }
+        return deleted;
+    }
+
+    // Move the given showtimes into the archive. Their bookings must already be archived.
+    public int archiveShowtimes(Collection<Long> showtimeIds) {
+        Map<String, Object> params = Map.of("ids", showtimeIds);
+        int copied = jdbcTemplate.update(COPY_SHOWTIMES, params);
+        int deleted = jdbcTemplate.update(DELETE_SHOWTIMES, params);
+        if (copied != deleted) {
+            throw new IllegalStateException("Archived " + copied + " showtimes but deleted " + deleted);
+        }
+        return deleted;
+    }
+}
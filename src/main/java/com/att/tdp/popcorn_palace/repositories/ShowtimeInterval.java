@@ -0,0 +1,7 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import java.time.LocalDateTime;
+
+// The time slot a showtime occupies in its theater.
+public record ShowtimeInterval(Long showtimeId, Long theaterId, LocalDateTime startTime, LocalDateTime endTime) {
+}
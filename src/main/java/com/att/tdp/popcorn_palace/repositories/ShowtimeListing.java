@@ -0,0 +1,12 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import java.time.LocalDateTime;
+
+// One row of a showtime search, with the same fields as a showtime in the JSON API plus the theater id.
+public record ShowtimeListing(Long id, double price, Long movieId, Long theaterId, String theater,
+                              LocalDateTime startTime, LocalDateTime endTime) {
+
+    public ShowtimeListing withTheater(String theaterName) {
+        return new ShowtimeListing(id, price, movieId, theaterId, theaterName, startTime, endTime);
+    }
+}
@@ -1,25 +1,30 @@
 package com.att.tdp.popcorn_palace.repositories;
 
-import com.att.tdp.popcorn_palace.entities.Movie;
 import com.att.tdp.popcorn_palace.entities.Showtime;
-import com.att.tdp.popcorn_palace.entities.Theater;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ShowtimeRepository extends JpaRepository<Showtime, Long> {
 
-    // Query for enforcing the "no overlapping showtimes" constraint.
-    @Query("SELECT s FROM Showtime s WHERE s.theater = :theater AND s.startTime <= :newEndTime AND s.endTime >= :newStartTime")
-    List<Showtime> findOverlappingShowtimes(@Param("theater") Theater theater,
-                                            @Param("newEndTime") LocalDateTime newEndTime,
-                                            @Param("newStartTime") LocalDateTime newStartTime);
+    // Load only the fields the booking path needs, without the eager movie and theater associations.
+    @Query("SELECT new com.att.tdp.popcorn_palace.repositories.ShowtimeSnapshot(s.id, t.id, t.capacity, s.startTime) " +
+            "FROM Showtime s JOIN s.theater t WHERE s.id = :showtimeId")
+    Optional<ShowtimeSnapshot> findSnapshotById(@Param("showtimeId") Long showtimeId);
 
+    // Every showtime's time slot, used to build the in-memory overlap index at startup.
+    @Query("SELECT new com.att.tdp.popcorn_palace.repositories.ShowtimeInterval(s.id, s.theater.id, s.startTime, s.endTime) " +
+            "FROM Showtime s")
+    List<ShowtimeInterval> findAllIntervals();
 
-    List<Showtime> findByMovie(Movie movie);
-    List<Showtime> findByTheater(Theater theater);
+    // Only the ids of a movie's or theater's showtimes, for deletion checks and cache eviction.
+    @Query("SELECT s.id FROM Showtime s WHERE s.movie.id = :movieId ORDER BY s.id")
+    List<Long> findIdsByMovieId(@Param("movieId") Long movieId);
+
+    @Query("SELECT s.id FROM Showtime s WHERE s.theater.id = :theaterId ORDER BY s.id")
+    List<Long> findIdsByTheaterId(@Param("theaterId") Long theaterId);
 }
@@ -0,0 +1,89 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset-paginated showtime search. Only the predicates that are set end up in the statement, so each query
+ * matches one of the search indexes (see the V5 migration) and reads a page in (start_time, id) order without
+ * sorting. Rows are mapped straight to {@link ShowtimeListing}, without loading entities or their associations.
+ * The query reads the showtimes table alone, so a covering index answers it; theater names are left to the caller.
+ */
+@Repository
+public class ShowtimeSearchRepository {
+
+    private static final String SELECT =
+            "SELECT id, price, movie_id, theater_id, start_time, end_time FROM showtimes";
+
+    private static final RowMapper<ShowtimeListing> ROW_MAPPER = (rs, rowNum) -> new ShowtimeListing(
+            rs.getLong("id"),
+            rs.getDouble("price"),
+            rs.getLong("movie_id"),
+            rs.getLong("theater_id"),
+            null,
+            rs.getObject("start_time", LocalDateTime.class),
+            rs.getObject("end_time", LocalDateTime.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ShowtimeSearchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // A search statement and its parameters.
+    record Query(String sql, MapSqlParameterSource params) {
+    }
+
+    /**
+     * Returns up to {@code limit} showtimes matching every non-null filter, in (start time, id) order.
+     * The theater names of the returned listings are not set.
+     *
+     * @param from       showtimes starting at or after this time
+     * @param to         showtimes starting before this time
+     * @param afterStart start time of the last showtime of the previous page (together with {@code afterId})
+     * @param afterId    id of the last showtime of the previous page
+     */
+    public List<ShowtimeListing> search(Long movieId, Long theaterId, LocalDateTime from, LocalDateTime to,
+                                        LocalDateTime afterStart, Long afterId, int limit) {
+        Query query = query(movieId, theaterId, from, to, afterStart, afterId, limit);
+        return jdbcTemplate.query(query.sql(), query.params(), ROW_MAPPER);
+    }
+
+    // Builds the statement search runs. Package-private so tests can EXPLAIN exactly that statement.
+    static Query query(Long movieId, Long theaterId, LocalDateTime from, LocalDateTime to,
+                       LocalDateTime afterStart, Long afterId, int limit) {
+        List<String> predicates = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        if (movieId != null) {
+            predicates.add("movie_id = :movieId");
+            params.addValue("movieId", movieId);
+        }
+        if (theaterId != null) {
+            predicates.add("theater_id = :theaterId");
+            params.addValue("theaterId", theaterId);
+        }
+        if (from != null) {
+            predicates.add("start_time >= :from");
+            params.addValue("from", from);
+        }
+        if (to != null) {
+            predicates.add("start_time < :to");
+            params.addValue("to", to);
+        }
+        if (afterStart != null && afterId != null) {
+            // Row value comparison, so the index range starts right after the previous page.
+            predicates.add("(start_time, id) > (:afterStart, :afterId)");
+            params.addValue("afterStart", afterStart);
+            params.addValue("afterId", afterId);
+        }
+
+        String where = predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+        return new Query(SELECT + where + " ORDER BY start_time, id LIMIT :limit", params);
+    }
+}
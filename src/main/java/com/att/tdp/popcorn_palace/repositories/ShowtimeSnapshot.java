@@ -0,0 +1,7 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import java.time.LocalDateTime;
+
+// Lightweight, immutable view of a showtime with just what the booking path needs.
+public record ShowtimeSnapshot(Long id, Long theaterId, int capacity, LocalDateTime startTime) {
+}
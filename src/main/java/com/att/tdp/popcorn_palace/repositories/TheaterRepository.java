@@ -1,11 +1,25 @@
 package com.att.tdp.popcorn_palace.repositories;
 
 import com.att.tdp.popcorn_palace.entities.Theater;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TheaterRepository extends JpaRepository<Theater, Long> {
+    // Find a theater by name. Results are kept in the query cache until the theaters table changes.
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Theater> findByName(String name);
+
+    // Resolve many theaters with a single query.
+    List<Theater> findByNameIn(Collection<String> names);
+
+    // Keyset page: the next theaters after the given id, in id order.
+    List<Theater> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
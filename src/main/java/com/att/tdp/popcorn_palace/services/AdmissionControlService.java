@@ -0,0 +1,122 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.util.TokenBucketTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits booking requests with token buckets per user and per showtime, before they cost any database work.
+ * <p>
+ * The default limits apply to every showtime when admission control is enabled. A showtime can be given its own
+ * limits at runtime, e.g. to tighten a premiere; those apply even when the defaults are disabled.
+ */
+@Service
+public class AdmissionControlService {
+
+    /**
+     * A token bucket refilled at {@code ratePerSecond} that holds up to {@code burst} tokens.
+     */
+    public record Limit(double ratePerSecond, int burst) {
+
+        private long intervalNanos() {
+            return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        }
+    }
+
+    /**
+     * The limits for booking a showtime. A null limit does not restrict.
+     */
+    public record AdmissionLimits(Limit user, Limit showtime) {
+    }
+
+    private final AdmissionLimits defaultLimits;
+    private final Map<Long, AdmissionLimits> showtimeLimits = new ConcurrentHashMap<>();
+
+    private final TokenBucketTable userBuckets;
+    private final TokenBucketTable showtimeBuckets;
+    private final Counter userRejections;
+    private final Counter showtimeRejections;
+
+    public AdmissionControlService(MeterRegistry meterRegistry,
+                                   @Value("${booking.admission.enabled:false}") boolean enabled,
+                                   @Value("${booking.admission.user-rate:2}") double userRate,
+                                   @Value("${booking.admission.user-burst:5}") int userBurst,
+                                   @Value("${booking.admission.showtime-rate:500}") double showtimeRate,
+                                   @Value("${booking.admission.showtime-burst:1000}") int showtimeBurst,
+                                   @Value("${booking.admission.max-keys:65536}") int maxKeys) {
+        this.defaultLimits = enabled
+                ? new AdmissionLimits(new Limit(userRate, userBurst), new Limit(showtimeRate, showtimeBurst))
+                : new AdmissionLimits(null, null);
+        this.userBuckets = new TokenBucketTable(maxKeys);
+        this.showtimeBuckets = new TokenBucketTable(maxKeys);
+        this.userRejections = Counter.builder("booking.admission.rejected")
+                .description("Booking requests rejected by admission control")
+                .tag("bucket", "user")
+                .register(meterRegistry);
+        this.showtimeRejections = Counter.builder("booking.admission.rejected")
+                .description("Booking requests rejected by admission control")
+                .tag("bucket", "showtime")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a token from the user's bucket, then from the showtime's. The user's bucket goes first, so that users
+     * over their own limit don't use up the showtime's.
+     *
+     * @return 0 if the request is admitted, otherwise how many nanoseconds until it may be retried
+     */
+    public long tryAdmit(Long showtimeId, UUID userId) {
+        AdmissionLimits limits = getLimits(showtimeId);
+        if (limits.user() == null && limits.showtime() == null) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        if (limits.user() != null) {
+            long userKey = userId.getMostSignificantBits() * 31 + userId.getLeastSignificantBits();
+            long wait = userBuckets.tryAcquire(userKey, limits.user().intervalNanos(), limits.user().burst(), now);
+            if (wait > 0) {
+                userRejections.increment();
+                return wait;
+            }
+        }
+        if (limits.showtime() != null) {
+            long wait = showtimeBuckets.tryAcquire(showtimeId, limits.showtime().intervalNanos(),
+                    limits.showtime().burst(), now);
+            if (wait > 0) {
+                showtimeRejections.increment();
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    public AdmissionLimits getLimits(Long showtimeId) {
+        if (showtimeLimits.isEmpty()) {
+            return defaultLimits;
+        }
+        return showtimeLimits.getOrDefault(showtimeId, defaultLimits);
+    }
+
+    public AdmissionLimits setLimits(Long showtimeId, AdmissionLimits limits) {
+        showtimeLimits.put(showtimeId, limits);
+        return limits;
+    }
+
+    /**
+     * Returns the showtime to the default limits.
+     *
+     * @return the default limits
+     */
+    public AdmissionLimits resetLimits(Long showtimeId) {
+        showtimeLimits.remove(showtimeId);
+        return defaultLimits;
+    }
+}
@@ -0,0 +1,191 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.entities.Booking;
+import com.att.tdp.popcorn_palace.exceptions.ResourceNotFoundException;
+import com.att.tdp.popcorn_palace.exceptions.SeatTakenException;
+import com.att.tdp.popcorn_palace.repositories.BookingBatchRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional group insert path for single-seat bookings ({@code booking.coalescer.enabled}).
+ * <p>
+ * Bookings submitted within a short window, or until the batch is full, are written by one writer thread in one
+ * transaction with a single batched insert. Seat conflicts are resolved per row, so each caller gets back its own
+ * booking or a {@link SeatTakenException}.
+ */
+@Service
+public class BookingCoalescer {
+
+    // A booking waiting for its batch, and the caller's future.
+    private record PendingBooking(Booking booking, CompletableFuture<Booking> result) {
+    }
+
+    private final boolean enabled;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final BookingBatchRepository bookingBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<PendingBooking> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService writer;
+    private final AtomicLong batchCount = new AtomicLong();
+    private volatile boolean running = true;
+
+    public BookingCoalescer(@Value("${booking.coalescer.enabled:false}") boolean enabled,
+                            @Value("${booking.coalescer.window-micros:500}") long windowMicros,
+                            @Value("${booking.coalescer.max-batch-size:256}") int maxBatchSize,
+                            BookingBatchRepository bookingBatchRepository,
+                            PlatformTransactionManager transactionManager) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Coalescer batch size must be at least 1");
+        }
+        this.enabled = enabled;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.bookingBatchRepository = bookingBatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.writer = enabled ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        if (writer != null) {
+            writer.execute(this::writeLoop);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        // Let the writer finish what is queued, then fail anything that arrived too late.
+        running = false;
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingBooking> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        leftover.forEach(pending -> pending.result().completeExceptionally(
+                new IllegalStateException("Booking coalescer is shut down")));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Number of transactions written so far; bookings per batch is the sharing actually achieved.
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Queues a booking for the next batch. The booking must have its id and showtime set.
+     *
+     * @return a future completed with the booking once it is committed, or with an {@link SeatTakenException}
+     * if its seat was taken, or a {@link ResourceNotFoundException} if its showtime is gone
+     */
+    public CompletableFuture<Booking> submit(Booking booking) {
+        CompletableFuture<Booking> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Booking coalescer is shut down"));
+            return result;
+        }
+        queue.add(new PendingBooking(booking, result));
+        return result;
+    }
+
+    private void writeLoop() {
+        List<PendingBooking> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                // Wait for the first booking, then keep collecting until the window closes or the batch is full.
+                PendingBooking first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(windowMicros);
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingBooking next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException ex) {
+                // Shutdown is driven by the running flag; keep draining what is queued.
+            } catch (RuntimeException ex) {
+                batch.forEach(pending -> pending.result().completeExceptionally(ex));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes one batch in one transaction and completes every caller's future.
+     */
+    private void write(List<PendingBooking> batch) {
+        List<Booking> bookings = batch.stream().map(PendingBooking::booking).toList();
+        batchCount.incrementAndGet();
+        boolean[] inserted;
+        try {
+            inserted = transactionTemplate.execute(status -> bookingBatchRepository.insertAllIgnoringConflicts(bookings));
+        } catch (DataIntegrityViolationException ex) {
+            // A row that fails for another reason (e.g. its showtime is gone) must not fail the rest: retry row by row.
+            batch.forEach(this::writeOne);
+            return;
+        }
+        for (int i = 0; i < inserted.length; i++) {
+            complete(batch.get(i), inserted[i]);
+        }
+    }
+
+    private void writeOne(PendingBooking pending) {
+        try {
+            boolean[] inserted = transactionTemplate.execute(status ->
+                    bookingBatchRepository.insertAllIgnoringConflicts(List.of(pending.booking())));
+            complete(pending, inserted[0]);
+        } catch (DataIntegrityViolationException ex) {
+            Booking booking = pending.booking();
+            pending.result().completeExceptionally(BookingService.insertFailure(
+                    booking.getShowtime().getId(), "seat number " + booking.getSeatNumber(), ex));
+        } catch (RuntimeException ex) {
+            pending.result().completeExceptionally(ex);
+        }
+    }
+
+    // A skipped row lost its seat to a booking that was already in the table.
+    private static void complete(PendingBooking pending, boolean inserted) {
+        if (inserted) {
+            pending.result().complete(pending.booking());
+        } else {
+            pending.result().completeExceptionally(SeatTakenException.forSeat(pending.booking().getSeatNumber()));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.entities.BookingIdempotencyKey;
+import com.att.tdp.popcorn_palace.exceptions.IdempotencyKeyReusedException;
+import com.att.tdp.popcorn_palace.repositories.BookingIdempotencyKeyRepository;
+import com.att.tdp.popcorn_palace.util.TransactionHooks;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class BookingIdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingIdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    // The booking a key produced, and the request it was used for.
+    private record Outcome(UUID bookingId, String requestFingerprint) {
+    }
+
+    // The first request for a key, still running on the owner thread. Completes with null if it did not commit.
+    private record Attempt(Thread owner, CompletableFuture<Outcome> outcome) {
+    }
+
+    private final BookingService bookingService;
+    private final BookingIdempotencyKeyRepository idempotencyKeyRepository;
+
+    // Keys whose booking has committed, so retries are answered without touching the database.
+    // Only plain get/put are used: database work never runs under the cache's locks.
+    private final Cache<String, Outcome> outcomes;
+    // Keys whose first request is still running. Concurrent retries wait for it instead of booking again.
+    private final ConcurrentHashMap<String, Attempt> inFlight = new ConcurrentHashMap<>();
+    private final Counter databaseHits;
+    // How long a key is honoured, in the cache and in the table.
+    private final Duration ttl;
+    private final ScheduledExecutorService sweeper;
+
+    public BookingIdempotencyService(BookingService bookingService,
+                                     BookingIdempotencyKeyRepository idempotencyKeyRepository,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${booking.idempotency.max-size:100000}") long maxSize,
+                                     @Value("${booking.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                                     @Value("${booking.idempotency.sweep-minutes:10}") long sweepMinutes) {
+        this.bookingService = bookingService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.outcomes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        // Exposes hit, miss and eviction counts as booking.idempotency cache metrics.
+        CaffeineCacheMetrics.monitor(meterRegistry, outcomes, "booking.idempotency");
+        this.databaseHits = Counter.builder("booking.idempotency.database.hits")
+                .description("Retries answered from the idempotency key table after missing the in-memory cache")
+                .register(meterRegistry);
+
+        // Without the sweep the key table would keep one row per keyed booking forever.
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-key-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sweepMinutes > 0) {
+            this.sweeper.scheduleWithFixedDelay(() -> {
+                // An exception escaping the task would cancel the schedule, and no key would be deleted again.
+                try {
+                    deleteExpiredKeys();
+                } catch (RuntimeException ex) {
+                    log.error("Failed to delete expired idempotency keys", ex);
+                }
+            }, sweepMinutes, sweepMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    // Delete the stored keys that are past the TTL. Returns the number deleted.
+    public int deleteExpiredKeys() {
+        return idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+    }
+
+    /**
+     * Books a ticket at most once per idempotency key. A retried request with the same key returns
+     * the booking id of the original request without booking again. Reusing a key for a different
+     * showtime or seat is rejected with an {@link IdempotencyKeyReusedException}.
+     *
+     * @return the booking id
+     */
+    @Transactional
+    public UUID bookTicket(String idempotencyKey, Long showtimeId, int seatNumber, UUID userId) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        // Scope keys by user so clients can't collide with each other.
+        String scopedKey = userId + ":" + idempotencyKey;
+        String fingerprint = showtimeId + ":" + seatNumber;
+        while (true) {
+            Outcome cached = outcomes.getIfPresent(scopedKey);
+            if (cached != null) {
+                return checked(cached, fingerprint);
+            }
+
+            // Concurrent retries of the same key wait for the first one. If it didn't commit, they start over.
+            Attempt attempt = new Attempt(Thread.currentThread(), new CompletableFuture<>());
+            Attempt first = inFlight.putIfAbsent(scopedKey, attempt);
+            if (first != null && first.owner() == attempt.owner()) {
+                // A retry inside the transaction of the first request, which can't commit while this one waits.
+                // The key row it saved is visible here.
+                return checked(lookupOrBook(scopedKey, attempt.outcome(), fingerprint, showtimeId, seatNumber, userId),
+                        fingerprint);
+            }
+            if (first != null) {
+                Outcome outcome = first.outcome().join();
+                if (outcome != null) {
+                    return checked(outcome, fingerprint);
+                }
+                continue;
+            }
+
+            // Whatever happens, waiters are released once this transaction is over.
+            TransactionHooks.afterCompletion(() -> {
+                inFlight.remove(scopedKey, attempt);
+                attempt.outcome().complete(null);
+            });
+            return checked(lookupOrBook(scopedKey, attempt.outcome(), fingerprint, showtimeId, seatNumber, userId),
+                    fingerprint);
+        }
+    }
+
+    private Outcome lookupOrBook(String scopedKey, CompletableFuture<Outcome> running, String fingerprint,
+                                 Long showtimeId, int seatNumber, UUID userId) {
+        // The key may have been used before the cache was filled, or before a restart. Past the TTL it is
+        // forgotten even if the sweep hasn't deleted it yet, and booking again overwrites the row.
+        Optional<BookingIdempotencyKey> existing = idempotencyKeyRepository.findById(scopedKey)
+                .filter(key -> !key.getCreatedAt().isBefore(LocalDateTime.now().minus(ttl)));
+        if (existing.isPresent()) {
+            databaseHits.increment();
+            return publishOnCommit(scopedKey, running,
+                    new Outcome(existing.get().getBookingId(), existing.get().getRequestFingerprint()));
+        }
+
+        UUID bookingId = bookingService.bookTicket(showtimeId, seatNumber, userId).getBookingId();
+        idempotencyKeyRepository.save(new BookingIdempotencyKey(scopedKey, bookingId, LocalDateTime.now(), fingerprint));
+        return publishOnCommit(scopedKey, running, new Outcome(bookingId, fingerprint));
+    }
+
+    // Retries only see an outcome once it has committed; until then they wait on the in-flight entry.
+    private Outcome publishOnCommit(String scopedKey, CompletableFuture<Outcome> running, Outcome outcome) {
+        TransactionHooks.afterCommit(() -> {
+            outcomes.put(scopedKey, outcome);
+            running.complete(outcome);
+        });
+        return outcome;
+    }
+
+    private static UUID checked(Outcome outcome, String fingerprint) {
+        if (outcome.requestFingerprint() != null && !outcome.requestFingerprint().equals(fingerprint)) {
+            throw IdempotencyKeyReusedException.INSTANCE;
+        }
+        return outcome.bookingId();
+    }
+}
@@ -0,0 +1,290 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.entities.Booking;
+import com.att.tdp.popcorn_palace.entities.Showtime;
+import com.att.tdp.popcorn_palace.repositories.BookingBatchRepository;
+import com.att.tdp.popcorn_palace.util.MappedRecordLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional write-ahead path for single-seat bookings ({@code booking.journal.enabled}).
+ * <p>
+ * A booking is acknowledged once it is forced to a local memory-mapped journal; concurrent bookings share one
+ * fsync. A background drainer moves journaled bookings into the bookings table in large batches and then
+ * checkpoints the journal. On startup, anything journaled but not yet drained is written to the database before
+ * the application takes traffic, so seat maps hydrated afterwards see it.
+ */
+@Service
+public class BookingJournalService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingJournalService.class);
+
+    // bookingId (16) + showtimeId (8) + seatNumber (4) + has userId (1) + userId (16)
+    static final int PAYLOAD_SIZE = 45;
+
+    private final boolean enabled;
+    private final BookingBatchRepository bookingBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long drainIntervalMillis;
+    private final int drainBatchSize;
+    private final long ackTimeoutMillis;
+    private final MappedRecordLog journal;
+
+    // Journaled bookings not yet in the database, by journal sequence.
+    private final ConcurrentNavigableMap<Long, Booking> pending = new ConcurrentSkipListMap<>();
+    private final AtomicLong deadLetteredBookings = new AtomicLong();
+    private ScheduledExecutorService drainer;
+
+    public BookingJournalService(@Value("${booking.journal.enabled:false}") boolean enabled,
+                                 @Value("${booking.journal.directory:data/booking-journal}") Path directory,
+                                 @Value("${booking.journal.segment-records:262144}") int segmentRecords,
+                                 @Value("${booking.journal.group-commit-micros:200}") long groupCommitMicros,
+                                 @Value("${booking.journal.drain-interval-millis:20}") long drainIntervalMillis,
+                                 @Value("${booking.journal.drain-batch-size:1000}") int drainBatchSize,
+                                 @Value("${booking.journal.ack-timeout-millis:5000}") long ackTimeoutMillis,
+                                 BookingBatchRepository bookingBatchRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.bookingBatchRepository = bookingBatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.drainIntervalMillis = drainIntervalMillis;
+        this.drainBatchSize = drainBatchSize;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        try {
+            this.journal = enabled
+                    ? new MappedRecordLog(directory, PAYLOAD_SIZE, segmentRecords, groupCommitMicros)
+                    : null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open the booking journal in " + directory, ex);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        replay();
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-journal-drainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(this::drainAll, drainIntervalMillis, drainIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (drainer != null) {
+            drainer.shutdown();
+            try {
+                drainer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Whatever isn't drained now is replayed on the next start.
+        drainAll();
+        journal.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journals a booking and waits for the group fsync that makes it durable. The booking must have its id
+     * and showtime set; it reaches the bookings table shortly afterwards.
+     */
+    public void append(Booking booking) {
+        long sequence;
+        try {
+            synchronized (pending) {
+                // Sequence and pending entry are added together, so the drainer never sees a gap it could skip.
+                sequence = journal.append(buffer -> encode(booking, buffer));
+                pending.put(sequence, booking);
+            }
+            journal.awaitDurable(sequence, ackTimeoutMillis);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to journal booking " + booking.getBookingId(), ex);
+        } catch (TimeoutException ex) {
+            // The record may still become durable, so the booking can't be treated as failed by the caller.
+            throw new IllegalStateException("Booking " + booking.getBookingId() + " was journaled but not acknowledged in time", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while journaling booking " + booking.getBookingId(), ex);
+        }
+    }
+
+    // Whether journaled bookings for the showtime are still waiting to reach the database.
+    public boolean hasPendingBookings(Long showtimeId) {
+        return pending.values().stream().anyMatch(booking -> booking.getShowtime().getId().equals(showtimeId));
+    }
+
+    // Seat numbers of the showtime's journaled bookings that are still waiting to reach the database.
+    public List<Integer> findPendingSeatNumbers(Long showtimeId) {
+        return pending.values().stream()
+                .filter(booking -> booking.getShowtime().getId().equals(showtimeId))
+                .map(Booking::getSeatNumber)
+                .toList();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Bookings that were acknowledged but could not be written, e.g. because their showtime was deleted meanwhile.
+    // They are kept in the booking_dead_letters table.
+    public long getDeadLetteredCount() {
+        return deadLetteredBookings.get();
+    }
+
+    /**
+     * Writes the un-drained tail of the journal to the database. Runs once at startup, before the drainer starts.
+     */
+    public void replay() {
+        long sequence = journal.getCheckpoint();
+        for (Booking booking : journal.recover(BookingJournalService::decode)) {
+            pending.put(++sequence, booking);
+        }
+        drainAll();
+    }
+
+    // Drain until nothing durable is left.
+    public void drainAll() {
+        try {
+            while (drainOnce() > 0) {
+                // Keep going while there is a backlog.
+            }
+        } catch (RuntimeException ex) {
+            // The failed batch was not checkpointed, so it stays pending and the next run retries it.
+            log.warn("Booking journal drain failed, {} bookings stay pending", pending.size(), ex);
+        }
+    }
+
+    /**
+     * Moves the next batch of durable, contiguous journal entries into the database and checkpoints the journal.
+     * Bookings that can never be written go to the dead letters; on any other failure nothing is checkpointed.
+     *
+     * @return the number of entries drained
+     */
+    public synchronized int drainOnce() {
+        long checkpoint = journal.getCheckpoint();
+        long durable = journal.getDurableSequence();
+        List<Map.Entry<Long, Booking>> batch = new ArrayList<>();
+        for (Map.Entry<Long, Booking> entry : pending.headMap(durable, true).entrySet()) {
+            if (entry.getKey() != checkpoint + batch.size() + 1 || batch.size() == drainBatchSize) {
+                break;
+            }
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Booking> bookings = batch.stream().map(Map.Entry::getValue).toList();
+        boolean[] inserted;
+        try {
+            // One transaction for the whole batch. Already-written bookings (after a crash) are skipped.
+            inserted = transactionTemplate.execute(status -> bookingBatchRepository.insertAllIgnoringConflicts(bookings));
+        } catch (DataIntegrityViolationException ex) {
+            // One bad row (e.g. its showtime is gone) must not block the rest: retry row by row.
+            log.warn("Booking journal batch of {} failed, retrying row by row", bookings.size(), ex);
+            bookings.forEach(this::drainOne);
+            inserted = null;
+        }
+        // Any other failure (the database is down, a timeout) propagates before the checkpoint, so the batch is retried.
+        if (inserted != null) {
+            for (int i = 0; i < inserted.length; i++) {
+                if (!inserted[i]) {
+                    settleSkipped(bookings.get(i));
+                }
+            }
+        }
+
+        // Every booking of the batch is now in the bookings table or in the dead letters.
+        long lastSequence = batch.get(batch.size() - 1).getKey();
+        try {
+            journal.checkpoint(lastSequence);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to checkpoint the booking journal", ex);
+        }
+        pending.headMap(lastSequence, true).clear();
+        return batch.size();
+    }
+
+    private void drainOne(Booking booking) {
+        try {
+            boolean[] inserted = transactionTemplate.execute(status ->
+                    bookingBatchRepository.insertAllIgnoringConflicts(List.of(booking)));
+            if (!inserted[0]) {
+                settleSkipped(booking);
+            }
+        } catch (DataIntegrityViolationException ex) {
+            deadLetter(booking, ex.getMostSpecificCause().getMessage());
+        }
+    }
+
+    // A skipped row is fine if it is this very booking, already written before a crash. Otherwise its seat went to
+    // another booking.
+    private void settleSkipped(Booking booking) {
+        if (!bookingBatchRepository.exists(booking.getBookingId())) {
+            deadLetter(booking, "Seat number " + booking.getSeatNumber() + " is already booked for this showtime.");
+        }
+    }
+
+    private void deadLetter(Booking booking, String reason) {
+        bookingBatchRepository.insertDeadLetter(booking, reason);
+        deadLetteredBookings.incrementAndGet();
+        log.error("Acknowledged booking {} for showtime {}, seat {} could not be written and was dead-lettered: {}",
+                booking.getBookingId(), booking.getShowtime().getId(), booking.getSeatNumber(), reason);
+    }
+
+    static void encode(Booking booking, ByteBuffer buffer) {
+        buffer.putLong(booking.getBookingId().getMostSignificantBits());
+        buffer.putLong(booking.getBookingId().getLeastSignificantBits());
+        buffer.putLong(booking.getShowtime().getId());
+        buffer.putInt(booking.getSeatNumber());
+        UUID userId = booking.getUserId();
+        buffer.put((byte) (userId == null ? 0 : 1));
+        buffer.putLong(userId == null ? 0 : userId.getMostSignificantBits());
+        buffer.putLong(userId == null ? 0 : userId.getLeastSignificantBits());
+    }
+
+    static Booking decode(ByteBuffer buffer) {
+        UUID bookingId = new UUID(buffer.getLong(), buffer.getLong());
+        Showtime showtime = new Showtime();
+        showtime.setId(buffer.getLong());
+        int seatNumber = buffer.getInt();
+        boolean hasUser = buffer.get() != 0;
+        UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+        return new Booking(bookingId, seatNumber, hasUser ? userId : null, showtime);
+    }
+}
@@ -2,55 +2,209 @@ package com.att.tdp.popcorn_palace.services;
 
 import com.att.tdp.popcorn_palace.entities.Booking;
 import com.att.tdp.popcorn_palace.entities.Showtime;
-import com.att.tdp.popcorn_palace.entities.Theater;
 import com.att.tdp.popcorn_palace.exceptions.InvalidSeatException;
 import com.att.tdp.popcorn_palace.exceptions.ResourceNotFoundException;
+import com.att.tdp.popcorn_palace.exceptions.SeatTakenException;
+import com.att.tdp.popcorn_palace.repositories.BookingBatchRepository;
 import com.att.tdp.popcorn_palace.repositories.BookingRepository;
 import com.att.tdp.popcorn_palace.repositories.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.repositories.ShowtimeSnapshot;
+import com.att.tdp.popcorn_palace.util.ConstraintViolations;
+import com.att.tdp.popcorn_palace.util.SeatBitmap;
+import com.att.tdp.popcorn_palace.util.TimeOrderedUuid;
+import com.att.tdp.popcorn_palace.util.TransactionHooks;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class    BookingService {
 
     private final BookingRepository bookingRepository;
+    private final BookingBatchRepository bookingBatchRepository;
     private final ShowtimeRepository showtimeRepository;
+    private final ShowtimeSnapshotService showtimeSnapshotService;
+    private final SeatOccupancyService seatOccupancyService;
+    private final BookingJournalService bookingJournalService;
+    private final BookingCoalescer bookingCoalescer;
+    private final SeatStreamService seatStreamService;
 
-    public BookingService(BookingRepository bookingRepository, ShowtimeRepository showtimeRepository) {
+    public BookingService(BookingRepository bookingRepository,
+                          BookingBatchRepository bookingBatchRepository,
+                          ShowtimeRepository showtimeRepository,
+                          ShowtimeSnapshotService showtimeSnapshotService,
+                          SeatOccupancyService seatOccupancyService,
+                          BookingJournalService bookingJournalService,
+                          BookingCoalescer bookingCoalescer,
+                          SeatStreamService seatStreamService) {
         this.bookingRepository = bookingRepository;
+        this.bookingBatchRepository = bookingBatchRepository;
         this.showtimeRepository = showtimeRepository;
+        this.showtimeSnapshotService = showtimeSnapshotService;
+        this.seatOccupancyService = seatOccupancyService;
+        this.bookingJournalService = bookingJournalService;
+        this.bookingCoalescer = bookingCoalescer;
+        this.seatStreamService = seatStreamService;
     }
 
     public Booking bookTicket(Long showtimeId, int seatNumber, UUID userId) {
-        // Lookup the showtime by id. If it's not found, throw a ResourceNotFoundException.
-        Showtime showtime = showtimeRepository.findById(showtimeId)
-                .orElseThrow(() -> new ResourceNotFoundException("Showtime not found: " + showtimeId));
+        // Lookup the showtime snapshot by id. If it's not found, throw a ResourceNotFoundException.
+        ShowtimeSnapshot showtime = showtimeSnapshotService.getSnapshot(showtimeId);
 
         // Validate the seat number is within the range of available seats in this theater.
-        Theater theater = showtime.getTheater();
-        if (seatNumber < 1 || seatNumber > theater.getCapacity()) {
-            throw new InvalidSeatException("Seat number " + seatNumber + " is out of range. Theater capacity: " + theater.getCapacity());
+        if (seatNumber < 1 || seatNumber > showtime.capacity()) {
+            throw new InvalidSeatException("Seat number " + seatNumber + " is out of range. Theater capacity: " + showtime.capacity());
         }
 
-        // Check if the seat is already booked for this showtime.
-        if (bookingRepository.existsByShowtime_IdAndSeatNumber(showtimeId, seatNumber)) {
-            throw new InvalidSeatException("Seat number " + seatNumber + " is already booked for this showtime.");
+        // Claim the seat in the in-memory seat map. Losing requests are rejected here without touching the database,
+        // with a shared exception for the seat so that the busiest failure costs no allocation.
+        SeatBitmap seats = seatOccupancyService.getSeats(showtimeId, showtime.capacity());
+        if (!seats.tryClaim(seatNumber)) {
+            throw SeatTakenException.forSeat(seatNumber);
         }
 
-        // Set booking parameters.
+        // Set booking parameters. Only the showtime id is needed, so a reference is enough.
         Booking booking = new Booking();
-        booking.setShowtime(showtime);
+        booking.setShowtime(showtimeRepository.getReferenceById(showtimeId));
         booking.setSeatNumber(seatNumber);
         booking.setUserId(userId);
 
+        // In journal mode the booking is acknowledged once it is durable in the local journal.
+        // It reaches the database shortly after, through the journal drainer.
+        if (bookingJournalService.isEnabled()) {
+            booking.setBookingId(TimeOrderedUuid.next());
+            try {
+                bookingJournalService.append(booking);
+            } catch (UncheckedIOException ex) {
+                seats.release(seatNumber);
+                throw ex;
+            }
+            seatStreamService.publishSeatsTaken(showtimeId, List.of(seatNumber));
+            return booking;
+        }
+
+        // With the coalescer, concurrent bookings share one transaction and one batched insert.
+        // A caller's own transaction can't be shared with the writer thread, so those still insert directly.
+        if (bookingCoalescer.isEnabled() && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            booking.setBookingId(TimeOrderedUuid.next());
+            Booking written;
+            try {
+                written = bookingCoalescer.submit(booking).join();
+            } catch (CompletionException ex) {
+                seats.release(seatNumber);
+                throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+            }
+            seatStreamService.publishSeatsTaken(showtimeId, List.of(seatNumber));
+            return written;
+        }
+
         // Wrap the save operation in a try/catch block to catch any database constraint violations.
+        // The uk_showtime_seat constraint stays the final authority, so the claim is released if the insert fails.
+        Booking saved;
+        try {
+            saved = bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException ex) {
+            seats.release(seatNumber);
+            throw insertFailure(showtimeId, "seat number " + seatNumber, ex);
+        }
+
+        // Free the seat again if an enclosing transaction rolls back; announce it once it is committed.
+        TransactionHooks.onRollback(() -> seats.release(seatNumber));
+        TransactionHooks.afterCommit(() -> seatStreamService.publishSeatsTaken(showtimeId, List.of(seatNumber)));
+        return saved;
+    }
+
+    @Transactional
+    public List<Booking> bookTickets(Long showtimeId, List<Integer> seatNumbers, UUID userId) {
+        // Claim all seats up front, then insert them in one batch.
+        SeatBitmap seats = claimSeats(showtimeId, seatNumbers);
+        return insertClaimedSeats(showtimeId, seatNumbers, userId, () -> seatNumbers.forEach(seats::release));
+    }
+
+    /**
+     * Validates the seat numbers against the theater capacity and claims all of them in the seat map.
+     * Either every seat is claimed or none is.
+     *
+     * @return the seat map the seats were claimed on
+     */
+    public SeatBitmap claimSeats(Long showtimeId, List<Integer> seatNumbers) {
+        // Lookup the showtime snapshot by id. If it's not found, throw a ResourceNotFoundException.
+        ShowtimeSnapshot showtime = showtimeSnapshotService.getSnapshot(showtimeId);
+
+        // Validate every seat number before claiming any of them.
+        Set<Integer> distinctSeats = new HashSet<>();
+        for (int seatNumber : seatNumbers) {
+            if (seatNumber < 1 || seatNumber > showtime.capacity()) {
+                throw new InvalidSeatException("Seat number " + seatNumber + " is out of range. Theater capacity: " + showtime.capacity());
+            }
+            if (!distinctSeats.add(seatNumber)) {
+                throw new InvalidSeatException("Seat number " + seatNumber + " is requested more than once.");
+            }
+        }
+
+        // Claim all seats in the seat map. If any of them is taken, release the ones already claimed.
+        SeatBitmap seats = seatOccupancyService.getSeats(showtimeId, showtime.capacity());
+        List<Integer> claimed = new ArrayList<>();
+        List<Integer> taken = new ArrayList<>();
+        for (int seatNumber : seatNumbers) {
+            if (seats.tryClaim(seatNumber)) {
+                claimed.add(seatNumber);
+            } else {
+                taken.add(seatNumber);
+            }
+        }
+        if (!taken.isEmpty()) {
+            claimed.forEach(seats::release);
+            throw new SeatTakenException("Seat numbers " + taken + " are already booked for this showtime.");
+        }
+        return seats;
+    }
+
+    /**
+     * Writes bookings for seats already claimed with {@link #claimSeats}. The claims are released with
+     * {@code releaseClaims} if the insert fails or the transaction rolls back.
+     */
+    @Transactional
+    public List<Booking> insertClaimedSeats(Long showtimeId, List<Integer> seatNumbers, UUID userId, Runnable releaseClaims) {
+        // Set booking parameters. Only the showtime id is needed, so a reference is enough.
+        Showtime showtime = showtimeRepository.getReferenceById(showtimeId);
+        List<Booking> bookings = new ArrayList<>(seatNumbers.size());
+        for (int seatNumber : seatNumbers) {
+            bookings.add(new Booking(TimeOrderedUuid.next(), seatNumber, userId, showtime));
+        }
+
+        // Insert all bookings with one JDBC batch. Any constraint violation fails the whole request.
         try {
-            return bookingRepository.save(booking);
+            bookingBatchRepository.insertAll(bookings);
         } catch (DataIntegrityViolationException ex) {
-            throw new InvalidSeatException("Failed to book seat number " + seatNumber + ": "
-                    + ex.getMostSpecificCause().getMessage());
+            releaseClaims.run();
+            throw insertFailure(showtimeId, "seat numbers " + seatNumbers, ex);
+        }
+
+        // Free the seats again if the transaction rolls back; announce them once they are committed.
+        TransactionHooks.onRollback(releaseClaims);
+        TransactionHooks.afterCommit(() -> seatStreamService.publishSeatsTaken(showtimeId, seatNumbers));
+        return bookings;
+    }
+
+    // Only a unique violation means the seat was taken. A foreign key violation means the showtime was deleted or
+    // archived after it was looked up; anything else is a server fault and stays one.
+    static RuntimeException insertFailure(Long showtimeId, String seats, DataIntegrityViolationException ex) {
+        if (ConstraintViolations.isUniqueViolation(ex)) {
+            return new SeatTakenException("Failed to book " + seats + ": " + ex.getMostSpecificCause().getMessage());
+        }
+        if (ConstraintViolations.isForeignKeyViolation(ex)) {
+            return new ResourceNotFoundException("Showtime not found: " + showtimeId);
         }
+        return ex;
     }
 }
@@ -0,0 +1,614 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.entities.Movie;
+import com.att.tdp.popcorn_palace.repositories.CatalogStreamRepository;
+import com.att.tdp.popcorn_palace.util.InputUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory type-ahead search over movie titles and genres.
+ * <p>
+ * Titles are matched case-insensitively in their {@link InputUtils#normalizeString} form. Best first, a query
+ * matches the whole title, the start of the title, the start of every title word, the start of title and genre
+ * words, and finally the same with misspelt query words replaced by indexed words sharing enough trigrams with
+ * them. Each tier only looks at a bounded number of candidates, so a query costs about the same however many
+ * titles match it, at the price of ranking only those. The index is loaded from the database at startup and kept
+ * up to date by {@link MovieService} after each commit.
+ */
+@Service
+public class MovieSearchIndex implements SmartInitializingSingleton {
+
+    public static final int MAX_LIMIT = 50;
+    public static final int MAX_QUERY_LENGTH = 100;
+
+    // Candidates ranked per query; a few pages' worth, so ranking by rating still has something to choose from.
+    private static final int CANDIDATE_BUDGET = 256;
+    // Titles a word search may check before it settles for the candidates found so far.
+    private static final int WORD_SCAN_BUDGET = 1_000;
+    // Leading characters of each word kept in the slot-ordered heads array.
+    private static final int HEAD_CHARS = 4;
+    // Trigram similarity (shared / all distinct trigrams) an indexed word needs to stand in for a misspelt one.
+    private static final double MIN_SIMILARITY = 0.4;
+    // Indexed words tried in place of each misspelt query word, most similar first.
+    private static final int MAX_CORRECTIONS = 5;
+    // Freed slots (or word ids) tolerated before they are compacted away, at least as many as are in use.
+    private static final int MIN_COMPACTION = 1024;
+
+    private static final double EXACT_TITLE = 4;
+    private static final double TITLE_PREFIX = 3;
+    private static final double TITLE_WORDS = 2;
+    private static final double TITLE_AND_GENRE_WORDS = 1;
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // A search result. Typo matches score the product of their corrections' similarities, below every other tier.
+    public record Hit(Long id, String title, String genre, int releaseYear, double rating, double score) {
+    }
+
+    // One indexed movie, in slot order.
+    private record Doc(int slot, Long id, String title, String genre, int releaseYear, double rating,
+                       String foldedTitle, String[] titleWords, String[] genreWords) {
+
+        private Doc withSlot(int slot) {
+            return new Doc(slot, id, title, genre, releaseYear, rating, foldedTitle, titleWords, genreWords);
+        }
+
+        // A slot holds one movie at a time, so it identifies the doc without hashing every field.
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Doc doc && doc.slot == slot;
+        }
+
+        @Override
+        public int hashCode() {
+            return slot;
+        }
+    }
+
+    /**
+     * What one query word matches: the titles in its postings, and the word heads a title needs one of. A word
+     * longer than a head is only known to match once the title itself is checked.
+     */
+    private record Term(Collection<Postings> postings, long[] heads, long mask) {
+    }
+
+    // Indexed words a query word may stand for, with their similarity to it; as typed, it is a prefix of them.
+    private record Correction(String token, boolean asTyped, Map<String, Double> words) {
+    }
+
+    // Slots of the movies (or ids of the words) containing a key, ascending. New slots and ids always come after
+    // the ones in use, so adding is nearly always an append.
+    private static final class Postings {
+        private int[] slots = new int[2];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            int index = size == 0 || slots[size - 1] < slot ? size : -Arrays.binarySearch(slots, 0, size, slot) - 1;
+            System.arraycopy(slots, index, slots, index + 1, size - index);
+            slots[index] = slot;
+            size++;
+        }
+
+        private void remove(int slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0) {
+                System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    // Best score first, then best rated, then shortest title. Spelt out, as it runs for every ranked candidate.
+    private static final Comparator<Map.Entry<Doc, Double>> BEST_FIRST = (a, b) -> {
+        int order = Double.compare(b.getValue(), a.getValue());
+        if (order == 0) {
+            order = Double.compare(b.getKey().rating(), a.getKey().rating());
+        }
+        if (order == 0) {
+            order = Integer.compare(a.getKey().title().length(), b.getKey().title().length());
+        }
+        return order != 0 ? order : a.getKey().foldedTitle().compareTo(b.getKey().foldedTitle());
+    };
+
+    private final CatalogStreamRepository catalogStreamRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Everything below is guarded by the lock: searches share it, writes take it exclusively.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<Long, Doc> docsById = new HashMap<>();
+    private final NavigableMap<String, Postings> titles = new TreeMap<>();
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+    // A word keeps its id while it is gone, so a word that comes back lands in the same place until compaction.
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> wordsById = new ArrayList<>();
+    private final Map<Long, Postings> wordTrigrams = new HashMap<>();
+    // The heads of every slot's title and genre words, back to back; slot s owns [headEnds[s - 1], headEnds[s]).
+    // Checking a candidate against them reads two arrays instead of its title's word strings.
+    private long[] heads = new long[1024];
+    private int[] headEnds = new int[1024];
+
+    public MovieSearchIndex(CatalogStreamRepository catalogStreamRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.catalogStreamRepository = catalogStreamRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Reload every movie from the database.
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            // The catalog cursor only streams inside a transaction.
+            transactionTemplate.executeWithoutResult(status -> catalogStreamRepository.streamMovies(this::add));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Add a movie, or re-index it if its id is already indexed.
+    public void put(Movie movie) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(docsById.get(movie.getId()));
+            add(movie);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long movieId) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(docsById.get(movieId));
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Slots taken, freed ones included.
+    int slotCount() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} movies matching the query, best first.
+     */
+    public List<Hit> search(String query, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Search limit must be between 1 and " + MAX_LIMIT);
+        }
+        String normalized = InputUtils.normalizeString(query);
+        if (normalized == null || normalized.isEmpty()) {
+            return List.of();
+        }
+        if (normalized.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        String folded = fold(normalized);
+        String[] tokens = split(folded);
+        if (tokens.length == 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Doc, Double> scores = new HashMap<>();
+            matchTitlePrefix(folded, scores);
+            if (scores.size() < CANDIDATE_BUDGET) {
+                matchWordPrefixes(tokens, scores);
+            }
+            // Only look for typos when the query doesn't fill a page on its own.
+            if (scores.size() < limit) {
+                matchTypos(tokens, scores);
+            }
+            return scores.entrySet().stream()
+                    .sorted(BEST_FIRST)
+                    .limit(limit)
+                    .map(entry -> {
+                        Doc doc = entry.getKey();
+                        return new Hit(doc.id(), doc.title(), doc.genre(), doc.releaseYear(), doc.rating(), entry.getValue());
+                    })
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Titles starting with the whole query, in title order.
+    private void matchTitlePrefix(String folded, Map<Doc, Double> scores) {
+        for (Map.Entry<String, Postings> entry : prefixRange(titles, folded).entrySet()) {
+            double score = entry.getKey().length() == folded.length() ? EXACT_TITLE : TITLE_PREFIX;
+            Postings postings = entry.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                scores.merge(docs.get(postings.slots[i]), score, Math::max);
+            }
+            if (scores.size() >= CANDIDATE_BUDGET) {
+                return;
+            }
+        }
+    }
+
+    // Titles where every query token starts a title or genre word.
+    private void matchWordPrefixes(String[] tokens, Map<Doc, Double> scores) {
+        List<Term> terms = new ArrayList<>();
+        for (String token : tokens) {
+            terms.add(prefixTerm(token));
+        }
+        scan(terms, doc -> wordScore(doc, tokens), scores);
+    }
+
+    private static double wordScore(Doc doc, String[] tokens) {
+        boolean titleOnly = true;
+        for (String token : tokens) {
+            if (startsAnyWord(doc.titleWords(), token)) {
+                continue;
+            }
+            if (!startsAnyWord(doc.genreWords(), token)) {
+                return 0;
+            }
+            titleOnly = false;
+        }
+        return titleOnly ? TITLE_WORDS : TITLE_AND_GENRE_WORDS;
+    }
+
+    // Titles matching the query once its misspelt words are replaced by similar indexed words.
+    private void matchTypos(String[] tokens, Map<Doc, Double> scores) {
+        Correction[] corrections = new Correction[tokens.length];
+        List<Term> terms = new ArrayList<>();
+        boolean misspelt = false;
+        for (int i = 0; i < tokens.length; i++) {
+            Term term = prefixTerm(tokens[i]);
+            if (term.postings().isEmpty()) {
+                Map<String, Double> similar = similarWords(tokens[i]);
+                if (similar.isEmpty()) {
+                    return;
+                }
+                corrections[i] = new Correction(tokens[i], false, similar);
+                term = new Term(similar.keySet().stream().map(words::get).toList(),
+                        similar.keySet().stream().mapToLong(MovieSearchIndex::head).toArray(), -1L);
+                misspelt = true;
+            } else {
+                corrections[i] = new Correction(tokens[i], true, Map.of());
+            }
+            terms.add(term);
+        }
+        if (!misspelt) {
+            // Every word is spelt as indexed; the word tier already found whatever matches.
+            return;
+        }
+        scan(terms, doc -> typoScore(doc, corrections), scores);
+    }
+
+    // The indexed words most similar to a misspelt one, by the trigrams they share.
+    private Map<String, Double> similarWords(String token) {
+        long[] query = trigramsOf(token);
+        // Sparse: a typo touches a few hundred words at most, not the whole vocabulary.
+        Map<Integer, Integer> shared = new HashMap<>();
+        List<Integer> candidates = new ArrayList<>();
+        // Sharing fewer than this many trigrams can't reach the minimum similarity, however short the word.
+        int needed = (int) Math.ceil(query.length * MIN_SIMILARITY);
+        for (long trigram : query) {
+            Postings postings = wordTrigrams.get(trigram);
+            for (int i = 0; postings != null && i < postings.size; i++) {
+                if (shared.merge(postings.slots[i], 1, Integer::sum) == needed) {
+                    candidates.add(postings.slots[i]);
+                }
+            }
+        }
+        Map<String, Double> similar = new LinkedHashMap<>();
+        candidates.stream()
+                .map(id -> Map.entry(wordsById.get(id),
+                        (double) shared.get(id) / (query.length + trigramsOf(wordsById.get(id)).length - shared.get(id))))
+                .filter(entry -> entry.getValue() >= MIN_SIMILARITY)
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_CORRECTIONS)
+                .forEach(entry -> similar.put(entry.getKey(), entry.getValue()));
+        return similar;
+    }
+
+    private static double typoScore(Doc doc, Correction[] corrections) {
+        double score = 1;
+        for (Correction correction : corrections) {
+            if (correction.asTyped()) {
+                if (!startsAnyWord(doc.titleWords(), correction.token())
+                        && !startsAnyWord(doc.genreWords(), correction.token())) {
+                    return 0;
+                }
+                continue;
+            }
+            double best = 0;
+            for (String word : doc.titleWords()) {
+                best = Math.max(best, correction.words().getOrDefault(word, 0.0));
+            }
+            for (String word : doc.genreWords()) {
+                best = Math.max(best, correction.words().getOrDefault(word, 0.0));
+            }
+            if (best == 0) {
+                return 0;
+            }
+            score *= best;
+        }
+        return score;
+    }
+
+    /**
+     * Scores the titles matching every term, until enough match or the scan budget runs out. The rarest term's
+     * postings are walked, and each title is checked against the other terms by its word heads before it is
+     * scored.
+     */
+    private void scan(List<Term> terms, ToDoubleFunction<Doc> scorer, Map<Doc, Double> scores) {
+        int driver = 0;
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < terms.size(); i++) {
+            int count = count(terms.get(i).postings(), fewest);
+            if (count < fewest) {
+                fewest = count;
+                driver = i;
+            }
+        }
+        if (fewest == 0) {
+            return;
+        }
+
+        int checked = 0;
+        for (Postings postings : terms.get(driver).postings()) {
+            for (int i = 0; i < postings.size; i++) {
+                if (++checked > WORD_SCAN_BUDGET) {
+                    return;
+                }
+                int slot = postings.slots[i];
+                if (!hasHeads(slot, terms)) {
+                    continue;
+                }
+                Doc doc = docs.get(slot);
+                double score = scorer.applyAsDouble(doc);
+                if (score > 0) {
+                    scores.merge(doc, score, Math::max);
+                    if (scores.size() >= CANDIDATE_BUDGET) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    // Whether the slot has a word head matching every term.
+    private boolean hasHeads(int slot, List<Term> terms) {
+        int start = slot == 0 ? 0 : headEnds[slot - 1];
+        int end = headEnds[slot];
+        for (Term term : terms) {
+            boolean found = false;
+            for (int i = start; i < end && !found; i++) {
+                long head = heads[i] & term.mask();
+                for (long wanted : term.heads()) {
+                    if (head == wanted) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Term prefixTerm(String token) {
+        long mask = -1L << (Character.SIZE * (HEAD_CHARS - Math.min(token.length(), HEAD_CHARS)));
+        return new Term(prefixRange(words, token).values(), new long[]{head(token) & mask}, mask);
+    }
+
+    // Postings in the lists, counting no further than the limit.
+    private static int count(Collection<Postings> lists, int limit) {
+        int count = 0;
+        for (Postings postings : lists) {
+            count += postings.size;
+            if (count >= limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private void add(Movie movie) {
+        String title = InputUtils.normalizeString(movie.getTitle());
+        String genre = movie.getGenre() == null ? "" : movie.getGenre();
+        String foldedTitle = fold(title);
+        String[] titleWords = split(foldedTitle);
+        String[] genreWords = split(fold(genre));
+        index(new Doc(docs.size(), movie.getId(), title, movie.getGenre(), movie.getReleaseYear(),
+                movie.getRating(), foldedTitle, titleWords, genreWords));
+    }
+
+    // Indexes a doc in the next free slot, which must be its own.
+    private void index(Doc doc) {
+        docs.add(doc);
+        Set<String> distinctWords = distinct(doc.titleWords(), doc.genreWords());
+        int start = doc.slot() == 0 ? 0 : headEnds[doc.slot() - 1];
+        if (headEnds.length == doc.slot()) {
+            headEnds = Arrays.copyOf(headEnds, doc.slot() * 2);
+        }
+        if (heads.length < start + distinctWords.size()) {
+            heads = Arrays.copyOf(heads, Math.max(heads.length * 2, start + distinctWords.size()));
+        }
+        for (String word : distinctWords) {
+            heads[start++] = head(word);
+        }
+        headEnds[doc.slot()] = start;
+        docsById.put(doc.id(), doc);
+        titles.computeIfAbsent(doc.foldedTitle(), key -> new Postings()).add(doc.slot());
+        for (String word : distinctWords) {
+            Postings postings = words.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                words.put(word, postings);
+                int id = wordIds.computeIfAbsent(word, key -> {
+                    wordsById.add(key);
+                    return wordsById.size() - 1;
+                });
+                for (long trigram : trigramsOf(word)) {
+                    wordTrigrams.computeIfAbsent(trigram, key -> new Postings()).add(id);
+                }
+            }
+            postings.add(doc.slot());
+        }
+    }
+
+    private void removeDoc(Doc doc) {
+        if (doc == null) {
+            return;
+        }
+        docs.set(doc.slot(), null);
+        docsById.remove(doc.id());
+        removePosting(titles, doc.foldedTitle(), doc.slot());
+        for (String word : distinct(doc.titleWords(), doc.genreWords())) {
+            if (removePosting(words, word, doc.slot())) {
+                int id = wordIds.get(word);
+                for (long trigram : trigramsOf(word)) {
+                    removePosting(wordTrigrams, trigram, id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-indexes the live docs into fresh, dense slots once the freed slots or word ids outnumber the ones in use,
+     * so that churn doesn't grow the slot arrays and trigram lookups without bound. Each compaction is paid for by
+     * the writes that freed its slots.
+     */
+    private void compactIfSparse() {
+        int freeSlots = docs.size() - docsById.size();
+        int freeWordIds = wordsById.size() - words.size();
+        if (freeSlots < Math.max(MIN_COMPACTION, docsById.size())
+                && freeWordIds < Math.max(MIN_COMPACTION, words.size())) {
+            return;
+        }
+        List<Doc> live = docs.stream().filter(doc -> doc != null).toList();
+        clear();
+        for (Doc doc : live) {
+            index(doc.withSlot(docs.size()));
+        }
+    }
+
+    private void clear() {
+        docs.clear();
+        docsById.clear();
+        titles.clear();
+        words.clear();
+        wordIds.clear();
+        wordsById.clear();
+        wordTrigrams.clear();
+        heads = new long[1024];
+        headEnds = new int[1024];
+    }
+
+    // Returns whether the key's last posting was removed.
+    private static <K> boolean removePosting(Map<K, Postings> map, K key, int slot) {
+        Postings postings = map.get(key);
+        if (postings != null) {
+            postings.remove(slot);
+            if (postings.size == 0) {
+                map.remove(key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static NavigableMap<String, Postings> prefixRange(NavigableMap<String, Postings> map, String prefix) {
+        return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static boolean startsAnyWord(String[] words, String token) {
+        for (String word : words) {
+            if (word.startsWith(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> distinct(String[] titleWords, String[] genreWords) {
+        Set<String> all = new HashSet<>(Arrays.asList(titleWords));
+        all.addAll(Arrays.asList(genreWords));
+        return all;
+    }
+
+    // The word's first characters packed into a long, left-aligned and zero-padded.
+    private static long head(String word) {
+        long head = 0;
+        for (int i = 0; i < HEAD_CHARS; i++) {
+            head = (head << Character.SIZE) | (i < word.length() ? word.charAt(i) : 0);
+        }
+        return head;
+    }
+
+    private static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] split(String folded) {
+        return Arrays.stream(WORD_SEPARATOR.split(folded)).filter(word -> !word.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * Distinct trigrams of a word, sorted. The word is padded with two spaces in front and one behind, so short
+     * words and word starts weigh in, like PostgreSQL's pg_trgm.
+     */
+    static long[] trigramsOf(String word) {
+        String padded = "  " + word + " ";
+        long[] all = new long[padded.length() - 2];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        return Arrays.stream(all).sorted().distinct().toArray();
+    }
+}
@@ -1,37 +1,98 @@
 package com.att.tdp.popcorn_palace.services;
 
+import com.att.tdp.popcorn_palace.config.ReadWriteRoutingDataSource;
 import com.att.tdp.popcorn_palace.entities.Movie;
-import com.att.tdp.popcorn_palace.entities.Showtime;
 import com.att.tdp.popcorn_palace.exceptions.MovieDeletionException;
 import com.att.tdp.popcorn_palace.exceptions.ResourceNotFoundException;
 import com.att.tdp.popcorn_palace.exceptions.UniqueConstraintViolationException;
+import com.att.tdp.popcorn_palace.repositories.CatalogStreamRepository;
 import com.att.tdp.popcorn_palace.repositories.MovieRepository;
 import com.att.tdp.popcorn_palace.repositories.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.util.SerializedSnapshot;
+import com.att.tdp.popcorn_palace.util.TransactionHooks;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class MovieService {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+
     private final MovieRepository movieRepository;
+    private final CatalogStreamRepository catalogStreamRepository;
     private final ShowtimeRepository showtimeRepository;
+    private final MovieSearchIndex movieSearchIndex;
+
+    // The full movie list as served by GET /movies/all, rebuilt after each change.
+    private final SerializedSnapshot catalogSnapshot;
 
     public MovieService(MovieRepository movieRepository,
-                        ShowtimeRepository showtimeRepository) {
+                        CatalogStreamRepository catalogStreamRepository,
+                        ShowtimeRepository showtimeRepository,
+                        MovieSearchIndex movieSearchIndex,
+                        ObjectMapper objectMapper) {
         this.movieRepository = movieRepository;
+        this.catalogStreamRepository = catalogStreamRepository;
         this.showtimeRepository = showtimeRepository;
+        this.movieSearchIndex = movieSearchIndex;
+        // Read from the primary, so a rebuild right after a write can't cache a lagging replica's view.
+        this.catalogSnapshot = new SerializedSnapshot(() ->
+                objectMapper.writeValueAsBytes(ReadWriteRoutingDataSource.onPrimary(movieRepository::findAll)));
     }
 
+    @Transactional(readOnly = true)
     public List<Movie> getAllMovies() {
         return movieRepository.findAll();
     }
 
+    // The full movie list, pre-serialized. Only the first read after a change touches the database.
+    public SerializedSnapshot.Content getCatalogSnapshot() {
+        return catalogSnapshot.get();
+    }
+
+    /**
+     * Returns one keyset page of movies: up to {@code limit} movies with an id greater than {@code after},
+     * in id order. The last id of a page is the {@code after} of the next one.
+     */
+    @Transactional(readOnly = true)
+    public List<Movie> getMovies(Long after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return movieRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after, Limit.of(pageSize));
+    }
+
+    // Type-ahead search over titles and genres, served from memory.
+    public List<MovieSearchIndex.Hit> searchMovies(String query, Integer limit) {
+        return movieSearchIndex.search(query, limit == null ? DEFAULT_SEARCH_LIMIT : limit);
+    }
+
+    // Hand every movie to the consumer as it is read, without loading the table into memory.
+    @Transactional(readOnly = true)
+    public void streamMovies(Consumer<? super Movie> consumer) {
+        catalogStreamRepository.streamMovies(consumer);
+    }
+
+    @Transactional
     public Movie addMovie(Movie movie) {
+        catalogSnapshot.invalidate();
+
         // Wrap the save operation in a try/catch block to catch any database constraint violations.
+        // Flushing makes the insert happen here even inside an enclosing transaction.
         try {
-            return movieRepository.save(movie);
+            Movie saved = movieRepository.saveAndFlush(movie);
+            TransactionHooks.afterCommit(() -> movieSearchIndex.put(saved));
+            return saved;
         } catch (DataIntegrityViolationException ex) {
             throw new UniqueConstraintViolationException(
                     "Movie title must be unique. " + ex.getMostSpecificCause().getMessage()
@@ -39,11 +100,14 @@ public class MovieService {
         }
     }
 
+    @Transactional
     public Movie updateMovie(String movieTitle, Movie updatedMovie) {
         // Lookup the movie by title. If it's not found, throw a ResourceNotFoundException.
         Movie movie = movieRepository.findByTitle(movieTitle)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found: " + movieTitle));
 
+        catalogSnapshot.invalidate();
+
         // Set movie parameters.
         movie.setTitle(updatedMovie.getTitle());
         movie.setGenre(updatedMovie.getGenre());
@@ -53,7 +117,9 @@ public class MovieService {
 
         // Wrap the save operation in a try/catch block to catch any database constraint violations.
         try {
-            return movieRepository.save(movie);
+            Movie saved = movieRepository.saveAndFlush(movie);
+            TransactionHooks.afterCommit(() -> movieSearchIndex.put(saved));
+            return saved;
         } catch (DataIntegrityViolationException ex) {
             throw new UniqueConstraintViolationException(
                     "Movie title must be unique. " + ex.getMostSpecificCause().getMessage()
@@ -61,22 +127,24 @@ public class MovieService {
         }
     }
 
+    @Transactional
     public void deleteMovie(String movieTitle) {
         // Lookup the movie by title. If it's not found, throw a ResourceNotFoundException.
         Movie movie = movieRepository.findByTitle(movieTitle)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found: " + movieTitle));
 
         // Check if there are any showtimes using this movie. If so, it can't be deleted until they are deleted.
-        List<Showtime> showtimes = showtimeRepository.findByMovie(movie);
-        if (!showtimes.isEmpty()) {
-            String ids = showtimes.stream()
-                    .map(s -> s.getId().toString())
-                    .reduce((a, b) -> a + ", " + b)
-                    .orElse("");
+        List<Long> showtimeIds = showtimeRepository.findIdsByMovieId(movie.getId());
+        if (!showtimeIds.isEmpty()) {
+            String ids = showtimeIds.stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(", "));
             throw new MovieDeletionException("Cannot delete movie because it is used by showtimes with IDs: " + ids);
         }
 
         // Delete the movie.
+        catalogSnapshot.invalidate();
         movieRepository.delete(movie);
+        TransactionHooks.afterCommit(() -> movieSearchIndex.remove(movie.getId()));
     }
 }
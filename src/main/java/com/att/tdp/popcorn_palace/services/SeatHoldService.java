@@ -0,0 +1,166 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.entities.Booking;
+import com.att.tdp.popcorn_palace.exceptions.ResourceNotFoundException;
+import com.att.tdp.popcorn_palace.util.HashedTimingWheel;
+import com.att.tdp.popcorn_palace.util.SeatBitmap;
+import com.att.tdp.popcorn_palace.util.TransactionHooks;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class SeatHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatHoldService.class);
+
+    // A temporary claim on seats while the customer pays. The seats stay claimed in the showtime's seat map, also
+    // when it is reloaded.
+    public record SeatHold(UUID holdId, Long showtimeId, UUID userId, List<Integer> seatNumbers, Instant expiresAt) {
+    }
+
+    private final BookingService bookingService;
+    private final SeatOccupancyService seatOccupancyService;
+    private final long ttlMillis;
+
+    private final Map<UUID, SeatHold> holds = new ConcurrentHashMap<>();
+    private final Map<Long, Set<UUID>> holdsByShowtime = new ConcurrentHashMap<>();
+    private final HashedTimingWheel<SeatHold> expiryWheel;
+    private final ScheduledExecutorService ticker;
+
+    public SeatHoldService(BookingService bookingService,
+                           SeatOccupancyService seatOccupancyService,
+                           @Value("${booking.holds.ttl-seconds:600}") long ttlSeconds,
+                           @Value("${booking.holds.tick-millis:100}") long tickMillis,
+                           @Value("${booking.holds.wheel-size:512}") int wheelSize) {
+        this.bookingService = bookingService;
+        this.seatOccupancyService = seatOccupancyService;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.expiryWheel = new HashedTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+
+        // A single thread drives the wheel; expired holds are released in bulk on each tick.
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(() -> {
+            // An exception escaping the task would cancel the schedule, and no hold would expire again.
+            try {
+                expireHolds(System.currentTimeMillis());
+            } catch (RuntimeException ex) {
+                log.error("Failed to expire seat holds", ex);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    public SeatHold holdSeats(Long showtimeId, List<Integer> seatNumbers, UUID userId) {
+        // Claim the seats exactly like a booking would, so held seats can't be booked by anyone else.
+        SeatBitmap seats = bookingService.claimSeats(showtimeId, seatNumbers);
+
+        // Register the hold, also with the seat map so a reload keeps the seats claimed, and schedule its expiry.
+        SeatHold hold = new SeatHold(UUID.randomUUID(), showtimeId, userId, List.copyOf(seatNumbers),
+                Instant.now().plusMillis(ttlMillis));
+        try {
+            seatOccupancyService.addHold(showtimeId, hold.holdId(), hold.seatNumbers(), seats);
+        } catch (RuntimeException ex) {
+            hold.seatNumbers().forEach(seats::release);
+            throw ex;
+        }
+        holds.put(hold.holdId(), hold);
+        holdsByShowtime.computeIfAbsent(showtimeId, id -> ConcurrentHashMap.newKeySet()).add(hold.holdId());
+        expiryWheel.schedule(hold, hold.expiresAt().toEpochMilli());
+        return hold;
+    }
+
+    public List<Booking> confirmHold(UUID holdId) {
+        // Take the hold away from the expiry timer. Whoever removes it first owns the seats.
+        SeatHold hold = takeHold(holdId);
+
+        // Turn the claimed seats into bookings. They stay held until the bookings commit, so a seat map reloaded
+        // meanwhile keeps them claimed, and are released with the hold if the insert fails.
+        List<Booking> bookings = bookingService.insertClaimedSeats(hold.showtimeId(), hold.seatNumbers(), hold.userId(),
+                () -> release(hold));
+        TransactionHooks.afterCommit(() -> seatOccupancyService.removeHold(hold.showtimeId(), hold.holdId(), false));
+        return bookings;
+    }
+
+    public void releaseHold(UUID holdId) {
+        release(takeHold(holdId));
+    }
+
+    // Drop every hold of a showtime, e.g. when the showtime is deleted.
+    public void releaseHolds(Long showtimeId) {
+        Set<UUID> holdIds = holdsByShowtime.remove(showtimeId);
+        if (holdIds == null) {
+            return;
+        }
+        for (UUID holdId : holdIds) {
+            SeatHold hold = holds.remove(holdId);
+            if (hold != null) {
+                release(hold);
+            }
+        }
+    }
+
+    /**
+     * Releases every hold whose deadline has passed.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @return the number of holds released
+     */
+    public int expireHolds(long nowMillis) {
+        int released = 0;
+        for (SeatHold hold : expiryWheel.advance(nowMillis)) {
+            // Holds that were confirmed or released already are no longer in the map.
+            if (holds.remove(hold.holdId(), hold)) {
+                unindex(hold);
+                release(hold);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+
+    private SeatHold takeHold(UUID holdId) {
+        SeatHold hold = holds.remove(holdId);
+        if (hold == null) {
+            throw new ResourceNotFoundException("Hold not found or expired: " + holdId);
+        }
+        unindex(hold);
+        return hold;
+    }
+
+    // Free the hold's seats in the current seat map.
+    private void release(SeatHold hold) {
+        seatOccupancyService.removeHold(hold.showtimeId(), hold.holdId(), true);
+    }
+
+    private void unindex(SeatHold hold) {
+        holdsByShowtime.computeIfPresent(hold.showtimeId(), (id, holdIds) -> {
+            holdIds.remove(hold.holdId());
+            return holdIds.isEmpty() ? null : holdIds;
+        });
+    }
+}
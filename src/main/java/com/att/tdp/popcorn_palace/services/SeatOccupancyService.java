@@ -0,0 +1,130 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.exceptions.SeatTakenException;
+import com.att.tdp.popcorn_palace.repositories.BookingRepository;
+import com.att.tdp.popcorn_palace.util.SeatBitmap;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class SeatOccupancyService {
+
+    private final BookingRepository bookingRepository;
+    private final BookingJournalService bookingJournalService;
+
+    // One bitmap per showtime, hydrated lazily from the bookings table and the booking journal on first access.
+    private final ConcurrentHashMap<Long, SeatBitmap> seatMaps = new ConcurrentHashMap<>();
+    // Seats claimed by active holds, per showtime and hold. Holds are not in the database, so a reloaded seat map
+    // claims them again from here. Only changed inside seatMaps.compute for the showtime, so loads see them whole.
+    private final ConcurrentHashMap<Long, Map<UUID, List<Integer>>> heldSeats = new ConcurrentHashMap<>();
+
+    public SeatOccupancyService(BookingRepository bookingRepository, BookingJournalService bookingJournalService) {
+        this.bookingRepository = bookingRepository;
+        this.bookingJournalService = bookingJournalService;
+    }
+
+    public SeatBitmap getSeats(Long showtimeId, int capacity) {
+        SeatBitmap seats = seatMaps.get(showtimeId);
+        if (seats != null && seats.getCapacity() == capacity) {
+            return seats;
+        }
+
+        // Load (or reload, if the theater capacity changed) the bitmap from the database.
+        return seatMaps.compute(showtimeId, (id, current) ->
+                current != null && current.getCapacity() == capacity ? current : load(id, capacity));
+    }
+
+    // Returns the seat map if it is already loaded, without touching the database.
+    public SeatBitmap findSeats(Long showtimeId) {
+        return seatMaps.get(showtimeId);
+    }
+
+    public void evict(Long showtimeId) {
+        seatMaps.remove(showtimeId);
+    }
+
+    /**
+     * Records seats claimed for a hold, so they stay claimed when the seat map is reloaded. If it was reloaded
+     * after the seats were claimed on {@code claimedOn}, they are claimed on the current map too.
+     *
+     * @throws SeatTakenException if one of the seats was taken on the reloaded map meanwhile
+     */
+    public void addHold(Long showtimeId, UUID holdId, List<Integer> seatNumbers, SeatBitmap claimedOn) {
+        seatMaps.compute(showtimeId, (id, current) -> {
+            if (current != null && current != claimedOn) {
+                List<Integer> carried = new ArrayList<>();
+                for (int seatNumber : seatNumbers) {
+                    if (seatNumber > current.getCapacity()) {
+                        continue;
+                    }
+                    if (!current.tryClaim(seatNumber)) {
+                        carried.forEach(current::release);
+                        throw new SeatTakenException("Seat numbers " + seatNumbers + " are already booked for this showtime.");
+                    }
+                    carried.add(seatNumber);
+                }
+            }
+            heldSeats.computeIfAbsent(id, key -> new ConcurrentHashMap<>()).put(holdId, seatNumbers);
+            return current;
+        });
+    }
+
+    /**
+     * Forgets a hold. With {@code releaseSeats} its seats are freed in the current seat map; without, they stay
+     * claimed, e.g. because they were booked.
+     */
+    public void removeHold(Long showtimeId, UUID holdId, boolean releaseSeats) {
+        seatMaps.compute(showtimeId, (id, current) -> {
+            Map<UUID, List<Integer>> holds = heldSeats.get(id);
+            List<Integer> seatNumbers = holds == null ? null : holds.remove(holdId);
+            if (holds != null && holds.isEmpty()) {
+                heldSeats.remove(id);
+            }
+            if (releaseSeats && current != null && seatNumbers != null) {
+                seatNumbers.forEach(current::release);
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Seat availability counting bookings only: the committed ones and, in journal mode, the acknowledged ones not
+     * yet in the table. Unlike the seat map, it leaves out held seats and claims whose transaction is still open.
+     * Read from the database on every call.
+     */
+    public SeatBitmap.Snapshot getBookedSeats(Long showtimeId, int capacity) {
+        SeatBitmap seats = new SeatBitmap(capacity);
+        claimBooked(seats, showtimeId);
+        return seats.snapshot();
+    }
+
+    private SeatBitmap load(Long showtimeId, int capacity) {
+        SeatBitmap seats = new SeatBitmap(capacity);
+        claimBooked(seats, showtimeId);
+        heldSeats.getOrDefault(showtimeId, Map.of()).values().forEach(held -> claim(seats, held));
+        return seats;
+    }
+
+    private void claimBooked(SeatBitmap seats, Long showtimeId) {
+        // Journaled bookings are read first: the drainer writes a booking before it stops being pending, so one that
+        // is drained meanwhile is still found in the table.
+        List<Integer> journaled = bookingJournalService.isEnabled()
+                ? bookingJournalService.findPendingSeatNumbers(showtimeId)
+                : List.of();
+        claim(seats, journaled);
+        claim(seats, bookingRepository.findSeatNumbersByShowtimeId(showtimeId));
+    }
+
+    private static void claim(SeatBitmap seats, List<Integer> seatNumbers) {
+        for (int seatNumber : seatNumbers) {
+            if (seatNumber >= 1 && seatNumber <= seats.getCapacity()) {
+                seats.tryClaim(seatNumber);
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Live seat changes per showtime over Server-Sent Events.
+ * <p>
+ * A subscriber first gets a {@code snapshot} event of the booked seats, then {@code seats-taken} events for
+ * bookings committed after it. Holds and uncommitted claims are in neither, so nothing has to be taken back when
+ * they are released or rolled back. Each showtime has one broadcaster: bookings only add their seats to its pending set, and a flusher thread
+ * turns everything pending into one frame, serialized once and shared by all subscribers. Every subscriber has a
+ * bounded frame queue written out by its own sender; one that lets its queue fill up is disconnected, and
+ * reconnecting gets it a fresh snapshot.
+ */
+@Service
+public class SeatStreamService {
+
+    // One SSE connection.
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> frames;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.frames = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    // The broadcaster of one showtime. Subscribers and frame order are guarded by the channel itself.
+    private static final class Channel {
+        private final Long showtimeId;
+        private final Set<Subscriber> subscribers = new LinkedHashSet<>();
+        private final BitSet pendingSeats = new BitSet();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private long sequence;
+        private boolean closed;
+
+        private Channel(Long showtimeId) {
+            this.showtimeId = showtimeId;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+    private final int subscriberBuffer;
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final Queue<Channel> dirtyChannels = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flusher;
+    // Sends block while a client's socket is full, so each runs on a virtual thread.
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("seat-stream-sender-", 0).factory());
+    private final AtomicLong framesPublished = new AtomicLong();
+    private final AtomicLong droppedSubscribers = new AtomicLong();
+
+    public SeatStreamService(ObjectMapper objectMapper,
+                             @Value("${booking.seat-stream.coalesce-millis:50}") long coalesceMillis,
+                             @Value("${booking.seat-stream.subscriber-buffer:16}") int subscriberBuffer,
+                             @Value("${booking.seat-stream.timeout-millis:1800000}") long timeoutMillis) {
+        if (subscriberBuffer < 1) {
+            throw new IllegalArgumentException("Seat stream subscriber buffer must be at least 1");
+        }
+        this.objectMapper = objectMapper;
+        this.subscriberBuffer = subscriberBuffer;
+        this.timeoutMillis = timeoutMillis;
+
+        // A single thread coalesces the changes of every showtime once per interval.
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-stream-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, coalesceMillis, coalesceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        channels.keySet().forEach(this::closeShowtime);
+        senders.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Long showtimeId, Supplier<?> initialState) {
+        return subscribe(showtimeId, new SseEmitter(timeoutMillis), initialState);
+    }
+
+    /**
+     * Registers an emitter for a showtime's seat changes and queues the initial snapshot on it.
+     *
+     * @param initialState the booked seats the deltas apply to, read under the broadcaster's lock
+     */
+    public SseEmitter subscribe(Long showtimeId, SseEmitter emitter, Supplier<?> initialState) {
+        Subscriber subscriber = new Subscriber(emitter, subscriberBuffer);
+        while (true) {
+            Channel channel = channels.computeIfAbsent(showtimeId, Channel::new);
+            synchronized (channel) {
+                if (channel.closed) {
+                    // The last subscriber just left and the channel was removed; start a new one.
+                    continue;
+                }
+                // No frame can be broadcast while the snapshot is taken and the subscriber registered, so every
+                // change after the snapshot follows it as a delta. A change that is already in the snapshot may
+                // also arrive as a delta; applying it twice is harmless.
+                Set<DataWithMediaType> snapshot;
+                try {
+                    snapshot = SseEmitter.event().name("snapshot")
+                            .data(initialState.get(), MediaType.APPLICATION_JSON).build();
+                } catch (RuntimeException ex) {
+                    if (channel.subscribers.isEmpty()) {
+                        channel.closed = true;
+                        channels.remove(showtimeId, channel);
+                    }
+                    throw ex;
+                }
+                channel.subscribers.add(subscriber);
+                subscriber.frames.add(snapshot);
+                send(subscriber);
+
+                emitter.onCompletion(() -> remove(channel, subscriber));
+                emitter.onTimeout(() -> remove(channel, subscriber));
+                emitter.onError(ex -> remove(channel, subscriber));
+                return emitter;
+            }
+        }
+    }
+
+    /**
+     * Announces committed bookings to the showtime's subscribers with the next frame. Never blocks on them.
+     */
+    public void publishSeatsTaken(Long showtimeId, Collection<Integer> seatNumbers) {
+        Channel channel = channels.get(showtimeId);
+        if (channel == null) {
+            // Nobody is listening.
+            return;
+        }
+        synchronized (channel.pendingSeats) {
+            seatNumbers.forEach(channel.pendingSeats::set);
+        }
+        if (channel.dirty.compareAndSet(false, true)) {
+            dirtyChannels.add(channel);
+        }
+    }
+
+    // Ends every stream of a deleted showtime.
+    public void closeShowtime(Long showtimeId) {
+        Channel channel = channels.get(showtimeId);
+        if (channel == null) {
+            return;
+        }
+        List<Subscriber> closing;
+        synchronized (channel) {
+            closing = new ArrayList<>(channel.subscribers);
+            channel.subscribers.clear();
+            channel.closed = true;
+            channels.remove(showtimeId, channel);
+        }
+        closing.forEach(subscriber -> {
+            subscriber.closed = true;
+            subscriber.emitter.complete();
+        });
+    }
+
+    public int getSubscriberCount(Long showtimeId) {
+        Channel channel = channels.get(showtimeId);
+        if (channel == null) {
+            return 0;
+        }
+        synchronized (channel) {
+            return channel.subscribers.size();
+        }
+    }
+
+    // Frames built so far, one per showtime per flush with changes, however many subscribers share it.
+    public long getFramesPublished() {
+        return framesPublished.get();
+    }
+
+    // Subscribers disconnected because they fell a full buffer behind.
+    public long getDroppedSubscribers() {
+        return droppedSubscribers.get();
+    }
+
+    /**
+     * Turns each showtime's pending seats into one frame and queues it for all of its subscribers.
+     */
+    public void flush() {
+        Channel channel;
+        while ((channel = dirtyChannels.poll()) != null) {
+            // Clear the flag first: seats published from here on either make this frame or mark the channel again.
+            channel.dirty.set(false);
+            int[] seats;
+            synchronized (channel.pendingSeats) {
+                seats = channel.pendingSeats.stream().toArray();
+                channel.pendingSeats.clear();
+            }
+            if (seats.length > 0) {
+                broadcast(channel, seats);
+            }
+        }
+    }
+
+    private void broadcast(Channel channel, int[] seats) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(Map.of("seats", seats));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        List<Subscriber> slow = new ArrayList<>();
+        synchronized (channel) {
+            if (channel.subscribers.isEmpty()) {
+                return;
+            }
+            Set<DataWithMediaType> frame = SseEmitter.event()
+                    .id(Long.toString(++channel.sequence)).name("seats-taken").data(data).build();
+            framesPublished.incrementAndGet();
+            for (Subscriber subscriber : channel.subscribers) {
+                if (subscriber.frames.offer(frame)) {
+                    send(subscriber);
+                } else {
+                    slow.add(subscriber);
+                }
+            }
+        }
+
+        // A full buffer means the client is a whole buffer behind: disconnect it rather than wait for it.
+        for (Subscriber subscriber : slow) {
+            droppedSubscribers.incrementAndGet();
+            remove(channel, subscriber);
+            subscriber.emitter.complete();
+        }
+    }
+
+    // Starts a sender for the subscriber unless one is already writing its queue.
+    private void send(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Set<DataWithMediaType> frame;
+            while (!subscriber.closed && (frame = subscriber.frames.poll()) != null) {
+                subscriber.emitter.send(frame);
+            }
+        } catch (IOException | IllegalStateException ex) {
+            // The client is gone or the emitter already completed; its callbacks remove it.
+            subscriber.closed = true;
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // A frame queued after the last poll would otherwise wait for the next one.
+        if (!subscriber.closed && !subscriber.frames.isEmpty()) {
+            send(subscriber);
+        }
+    }
+
+    private void remove(Channel channel, Subscriber subscriber) {
+        subscriber.closed = true;
+        synchronized (channel) {
+            if (channel.subscribers.remove(subscriber) && channel.subscribers.isEmpty()) {
+                channel.closed = true;
+                channels.remove(channel.showtimeId, channel);
+            }
+        }
+        subscriber.frames.clear();
+    }
+}
@@ -0,0 +1,212 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.repositories.ShowtimeArchiveRepository;
+import com.att.tdp.popcorn_palace.util.TransactionHooks;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Moves showtimes that ended before a cutoff, and their bookings, into the archive tables.
+ * The work is split into chunks of showtimes. Each chunk is one short transaction (when not called from inside
+ * another one), and the job pauses between chunks so it can run next to live traffic.
+ */
+@Service
+public class ShowtimeArchiveService {
+
+    // Progress of the current or last archive run.
+    public record ArchiveProgress(String state, LocalDateTime cutoff, int chunkSize, long pauseMillis,
+                                  int chunks, long showtimesArchived, long bookingsArchived,
+                                  Instant startedAt, Instant finishedAt, String error) {
+
+        static ArchiveProgress running(LocalDateTime cutoff, int chunkSize, long pauseMillis) {
+            return new ArchiveProgress("RUNNING", cutoff, chunkSize, pauseMillis, 0, 0, 0, Instant.now(), null, null);
+        }
+
+        ArchiveProgress withChunk(int showtimes, int bookings) {
+            return new ArchiveProgress(state, cutoff, chunkSize, pauseMillis, chunks + 1, showtimesArchived + showtimes,
+                    bookingsArchived + bookings, startedAt, finishedAt, error);
+        }
+
+        ArchiveProgress finished(String finalState, String finalError) {
+            return new ArchiveProgress(finalState, cutoff, chunkSize, pauseMillis, chunks, showtimesArchived,
+                    bookingsArchived, startedAt, Instant.now(), finalError);
+        }
+
+        public boolean isRunning() {
+            return "RUNNING".equals(state);
+        }
+    }
+
+    private static final int MAX_CHUNK_SIZE = 10_000;
+
+    private final ShowtimeArchiveRepository showtimeArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShowtimeSnapshotService showtimeSnapshotService;
+    private final ShowtimeIntervalIndex showtimeIntervalIndex;
+    private final SeatOccupancyService seatOccupancyService;
+    private final SeatHoldService seatHoldService;
+    private final BookingJournalService bookingJournalService;
+    private final int defaultChunkSize;
+    private final long defaultPauseMillis;
+
+    private final AtomicReference<ArchiveProgress> progress = new AtomicReference<>();
+    private final AtomicBoolean cancelRequested = new AtomicBoolean();
+    private final ExecutorService runner;
+
+    public ShowtimeArchiveService(ShowtimeArchiveRepository showtimeArchiveRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  ShowtimeSnapshotService showtimeSnapshotService,
+                                  ShowtimeIntervalIndex showtimeIntervalIndex,
+                                  SeatOccupancyService seatOccupancyService,
+                                  SeatHoldService seatHoldService,
+                                  BookingJournalService bookingJournalService,
+                                  @Value("${archive.chunk-size:500}") int defaultChunkSize,
+                                  @Value("${archive.pause-millis:200}") long defaultPauseMillis) {
+        this.showtimeArchiveRepository = showtimeArchiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.showtimeSnapshotService = showtimeSnapshotService;
+        this.showtimeIntervalIndex = showtimeIntervalIndex;
+        this.seatOccupancyService = seatOccupancyService;
+        this.seatHoldService = seatHoldService;
+        this.bookingJournalService = bookingJournalService;
+        this.defaultChunkSize = defaultChunkSize;
+        this.defaultPauseMillis = defaultPauseMillis;
+
+        // At most one archive run at a time, on its own thread.
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "showtime-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancelRequested.set(true);
+        runner.shutdownNow();
+    }
+
+    /**
+     * Starts archiving in the background and returns immediately. Only one run may be active at a time.
+     *
+     * @param cutoff      showtimes that ended before this time are archived
+     * @param chunkSize   showtimes per chunk, or null for the configured default
+     * @param pauseMillis pause between chunks, or null for the configured default
+     * @return the progress of the new run
+     */
+    public ArchiveProgress start(LocalDateTime cutoff, Integer chunkSize, Long pauseMillis) {
+        int size = chunkSize == null ? defaultChunkSize : chunkSize;
+        long pause = pauseMillis == null ? defaultPauseMillis : pauseMillis;
+        ArchiveProgress initial = begin(cutoff, size, pause);
+        runner.execute(() -> run(cutoff, size, pause));
+        return initial;
+    }
+
+    // Ask the running job to stop after its current chunk.
+    public ArchiveProgress cancel() {
+        cancelRequested.set(true);
+        return getProgress();
+    }
+
+    public ArchiveProgress getProgress() {
+        ArchiveProgress current = progress.get();
+        return current == null ? new ArchiveProgress("IDLE", null, 0, 0, 0, 0, 0, null, null, null) : current;
+    }
+
+    /**
+     * Archives on the calling thread until no showtime that ended before the cutoff is left. Like {@link #start},
+     * it refuses to run next to another run.
+     *
+     * @return the final progress
+     */
+    public ArchiveProgress archiveShowtimesEndedBefore(LocalDateTime cutoff, int chunkSize, long pauseMillis) {
+        begin(cutoff, chunkSize, pauseMillis);
+        run(cutoff, chunkSize, pauseMillis);
+        return progress.get();
+    }
+
+    // Claim the single run slot, whichever thread the run goes on.
+    private ArchiveProgress begin(LocalDateTime cutoff, int chunkSize, long pauseMillis) {
+        validate(cutoff, chunkSize, pauseMillis);
+        ArchiveProgress initial = ArchiveProgress.running(cutoff, chunkSize, pauseMillis);
+        ArchiveProgress previous = progress.get();
+        if ((previous != null && previous.isRunning()) || !progress.compareAndSet(previous, initial)) {
+            throw new IllegalStateException("An archive run is already in progress.");
+        }
+        cancelRequested.set(false);
+        return initial;
+    }
+
+    private void run(LocalDateTime cutoff, int chunkSize, long pauseMillis) {
+        try {
+            while (!cancelRequested.get()) {
+                int[] moved = transactionTemplate.execute(status -> archiveChunk(cutoff, chunkSize));
+                if (moved[0] == 0) {
+                    progress.updateAndGet(p -> p.finished("COMPLETED", null));
+                    return;
+                }
+                progress.updateAndGet(p -> p.withChunk(moved[0], moved[1]));
+
+                // Throttle so live traffic keeps most of the database's capacity.
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+            progress.updateAndGet(p -> p.finished("CANCELLED", null));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            progress.updateAndGet(p -> p.finished("CANCELLED", null));
+        } catch (RuntimeException ex) {
+            progress.updateAndGet(p -> p.finished("FAILED", ex.getMessage()));
+        }
+    }
+
+    // Archive one chunk and return {showtimes moved, bookings moved}.
+    private int[] archiveChunk(LocalDateTime cutoff, int chunkSize) {
+        List<Long> showtimeIds = showtimeArchiveRepository.lockEndedShowtimeIds(cutoff, chunkSize);
+        if (showtimeIds.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        // Journaled bookings not yet in the database would be left behind, so the run stops and can be retried.
+        for (Long showtimeId : showtimeIds) {
+            if (bookingJournalService.hasPendingBookings(showtimeId)) {
+                throw new IllegalStateException("Showtime " + showtimeId
+                        + " has journaled bookings that are not in the database yet. Please run the archive again shortly.");
+            }
+        }
+        int bookings = showtimeArchiveRepository.archiveBookings(showtimeIds);
+        int showtimes = showtimeArchiveRepository.archiveShowtimes(showtimeIds);
+
+        // Drop the archived showtimes' snapshots, slots, holds and seat maps.
+        showtimeSnapshotService.evict(showtimeIds);
+        TransactionHooks.afterCommit(() -> showtimeIds.forEach(showtimeId -> {
+            showtimeIntervalIndex.release(showtimeIntervalIndex.findSlot(showtimeId));
+            seatHoldService.releaseHolds(showtimeId);
+            seatOccupancyService.evict(showtimeId);
+        }));
+        return new int[]{showtimes, bookings};
+    }
+
+    private static void validate(LocalDateTime cutoff, int chunkSize, long pauseMillis) {
+        if (cutoff == null) {
+            throw new IllegalArgumentException("Archive cutoff is required");
+        }
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Archive chunk size must be between 1 and " + MAX_CHUNK_SIZE);
+        }
+        if (pauseMillis < 0) {
+            throw new IllegalArgumentException("Archive pause must not be negative");
+        }
+    }
+}
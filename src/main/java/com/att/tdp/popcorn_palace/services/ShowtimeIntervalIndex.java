@@ -0,0 +1,170 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.repositories.ShowtimeInterval;
+import com.att.tdp.popcorn_palace.repositories.ShowtimeRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of the time slots taken in every theater, so overlap checks are O(log n)
+ * instead of a query per write. Check-and-reserve is atomic per theater, which closes the race
+ * between concurrent writers to the same theater. The database stays the source of truth and
+ * the index is rebuilt from it at startup.
+ */
+@Service
+public class ShowtimeIntervalIndex implements SmartInitializingSingleton {
+
+    /**
+     * A reserved time slot. The showtime id is filled in once the showtime has been saved.
+     */
+    public static final class Slot {
+        private final long sequence;
+        private final Long theaterId;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private volatile Long showtimeId;
+
+        private Slot(long sequence, Long theaterId, LocalDateTime startTime, LocalDateTime endTime, Long showtimeId) {
+            this.sequence = sequence;
+            this.theaterId = theaterId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.showtimeId = showtimeId;
+        }
+
+        public Long getShowtimeId() {
+            return showtimeId;
+        }
+
+        private Duration length() {
+            return Duration.between(startTime, endTime);
+        }
+    }
+
+    // The slots of one theater. They don't overlap, except while an update holds both its old and new slot, so
+    // an earlier slot can reach past a later one. The longest slot held bounds how far back that can be; the
+    // lengths are counted so it shrinks again once the long slots are released.
+    private static final class TheaterSlots {
+        private final NavigableSet<Slot> slots = new TreeSet<>(BY_START);
+        private final NavigableMap<Duration, Integer> lengths = new TreeMap<>();
+
+        void add(Slot slot) {
+            slots.add(slot);
+            lengths.merge(slot.length(), 1, Integer::sum);
+        }
+
+        void remove(Slot slot) {
+            if (slots.remove(slot)) {
+                lengths.computeIfPresent(slot.length(), (length, count) -> count == 1 ? null : count - 1);
+            }
+        }
+
+        Duration longest() {
+            return lengths.isEmpty() ? Duration.ZERO : lengths.lastKey();
+        }
+    }
+
+    private static final Comparator<Slot> BY_START = Comparator
+            .comparing((Slot slot) -> slot.startTime)
+            .thenComparingLong(slot -> slot.sequence);
+
+    private final ShowtimeRepository showtimeRepository;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, TheaterSlots> slotsByTheater = new ConcurrentHashMap<>();
+    private final Map<Long, Slot> slotsByShowtime = new ConcurrentHashMap<>();
+
+    public ShowtimeIntervalIndex(ShowtimeRepository showtimeRepository) {
+        this.showtimeRepository = showtimeRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Reload every slot from the database.
+    public void rebuild() {
+        slotsByTheater.clear();
+        slotsByShowtime.clear();
+        for (ShowtimeInterval interval : showtimeRepository.findAllIntervals()) {
+            Slot slot = newSlot(interval.theaterId(), interval.startTime(), interval.endTime(), interval.showtimeId());
+            theaterSlots(slot.theaterId).add(slot);
+            slotsByShowtime.put(interval.showtimeId(), slot);
+        }
+    }
+
+    /**
+     * Atomically checks the theater for an overlapping showtime and reserves the slot if there is none.
+     * Like the overlap query, touching intervals count as overlapping.
+     *
+     * @param ignoredShowtimeId a showtime whose current slot is ignored by the check (the one being updated), or null
+     * @return the reserved slot, or null if the interval overlaps an existing showtime
+     */
+    public Slot tryReserve(Long theaterId, LocalDateTime startTime, LocalDateTime endTime, Long ignoredShowtimeId) {
+        TheaterSlots theater = theaterSlots(theaterId);
+        synchronized (theater) {
+            // Walk back from the last slot starting no later than the new end, as long as a slot that early could
+            // still reach the new start.
+            Slot probe = new Slot(Long.MAX_VALUE, theaterId, endTime, endTime, null);
+            LocalDateTime earliestReaching = startTime.minus(theater.longest());
+            for (Slot candidate : theater.slots.headSet(probe, true).descendingSet()) {
+                if (candidate.startTime.isBefore(earliestReaching)) {
+                    break;
+                }
+                if (ignoredShowtimeId != null && ignoredShowtimeId.equals(candidate.showtimeId)) {
+                    continue;
+                }
+                if (!candidate.endTime.isBefore(startTime)) {
+                    return null;
+                }
+            }
+
+            Slot slot = newSlot(theaterId, startTime, endTime, null);
+            theater.add(slot);
+            return slot;
+        }
+    }
+
+    // Bind a reserved slot to the showtime that was saved for it.
+    public void assign(Slot slot, Long showtimeId) {
+        slot.showtimeId = showtimeId;
+        slotsByShowtime.put(showtimeId, slot);
+    }
+
+    // Release a slot, e.g. because the insert failed or the showtime moved or was deleted.
+    public void release(Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        TheaterSlots theater = theaterSlots(slot.theaterId);
+        synchronized (theater) {
+            theater.remove(slot);
+        }
+        if (slot.showtimeId != null) {
+            slotsByShowtime.remove(slot.showtimeId, slot);
+        }
+    }
+
+    public Slot findSlot(Long showtimeId) {
+        return slotsByShowtime.get(showtimeId);
+    }
+
+    private TheaterSlots theaterSlots(Long theaterId) {
+        return slotsByTheater.computeIfAbsent(theaterId, id -> new TheaterSlots());
+    }
+
+    private Slot newSlot(Long theaterId, LocalDateTime startTime, LocalDateTime endTime, Long showtimeId) {
+        return new Slot(sequence.incrementAndGet(), theaterId, startTime, endTime, showtimeId);
+    }
+}
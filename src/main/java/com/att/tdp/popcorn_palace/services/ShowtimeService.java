@@ -6,44 +6,103 @@ import com.att.tdp.popcorn_palace.entities.Theater;
 import com.att.tdp.popcorn_palace.exceptions.*;
 import com.att.tdp.popcorn_palace.repositories.BookingRepository;
 import com.att.tdp.popcorn_palace.repositories.MovieRepository;
+import com.att.tdp.popcorn_palace.repositories.ShowtimeListing;
 import com.att.tdp.popcorn_palace.repositories.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.repositories.ShowtimeSearchRepository;
 import com.att.tdp.popcorn_palace.repositories.TheaterRepository;
+import com.att.tdp.popcorn_palace.util.SeatBitmap;
+import com.att.tdp.popcorn_palace.util.TransactionHooks;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Service
 public class ShowtimeService {
 
+    // One showtime of a bulk import. The theater name must already be normalized.
+    public record BulkShowtime(Long movieId, String theaterName, double price,
+                               LocalDateTime startTime, LocalDateTime endTime) {
+    }
+
+    // Outcome of one bulk import item, reported at the item's position in the request.
+    public record BulkShowtimeResult(int index, String status, Long showtimeId, String error) {
+
+        public static BulkShowtimeResult created(int index, Long showtimeId) {
+            return new BulkShowtimeResult(index, "CREATED", showtimeId, null);
+        }
+
+        public static BulkShowtimeResult rejected(int index, String error) {
+            return new BulkShowtimeResult(index, "REJECTED", null, error);
+        }
+    }
+
+    // One page of a showtime search. nextCursor is null on the last page.
+    public record ShowtimePage(List<ShowtimeListing> showtimes, String nextCursor) {
+    }
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // SQLState and name of the PostgreSQL exclusion constraint that rejects overlapping showtimes (see V3 migration).
+    private static final String EXCLUSION_VIOLATION = "23P01";
+    private static final String NO_OVERLAP_CONSTRAINT = "ex_showtimes_no_overlap";
+
     private final ShowtimeRepository showtimeRepository;
     private final TheaterRepository theaterRepository;
+    private final TheaterService theaterService;
     private final MovieRepository movieRepository;
     private final BookingRepository bookingRepository;
+    private final ShowtimeIntervalIndex showtimeIntervalIndex;
+    private final ShowtimeSnapshotService showtimeSnapshotService;
+    private final SeatOccupancyService seatOccupancyService;
+    private final SeatHoldService seatHoldService;
+    private final BookingJournalService bookingJournalService;
+    private final ShowtimeSearchRepository showtimeSearchRepository;
+    private final SeatStreamService seatStreamService;
 
     public ShowtimeService(ShowtimeRepository showtimeRepository,
                            TheaterRepository theaterRepository,
+                           TheaterService theaterService,
                            BookingRepository bookingRepository,
-                           MovieRepository movieRepository) {
+                           MovieRepository movieRepository,
+                           ShowtimeIntervalIndex showtimeIntervalIndex,
+                           ShowtimeSnapshotService showtimeSnapshotService,
+                           SeatOccupancyService seatOccupancyService,
+                           SeatHoldService seatHoldService,
+                           BookingJournalService bookingJournalService,
+                           ShowtimeSearchRepository showtimeSearchRepository,
+                           SeatStreamService seatStreamService) {
         this.showtimeRepository = showtimeRepository;
         this.theaterRepository = theaterRepository;
+        this.theaterService = theaterService;
         this.bookingRepository = bookingRepository;
         this.movieRepository = movieRepository;
+        this.showtimeIntervalIndex = showtimeIntervalIndex;
+        this.showtimeSnapshotService = showtimeSnapshotService;
+        this.seatOccupancyService = seatOccupancyService;
+        this.seatHoldService = seatHoldService;
+        this.bookingJournalService = bookingJournalService;
+        this.showtimeSearchRepository = showtimeSearchRepository;
+        this.seatStreamService = seatStreamService;
     }
 
 
+    @Transactional
     public Showtime addShowtime(Showtime showtime, Long movieId, String theaterName) {
         // Lookup the movie by ID. If it's not found, throw a ResourceNotFoundException.
         Movie movie = movieRepository.findById(movieId)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found: " + movieId));
 
         // Lookup the theater by name. if it's not found, create a new one with DEFAULT_CAPACITY.
-        Theater theater = theaterRepository.findByName(theaterName)
-                .orElseGet(() -> {
-                    Theater newTheater = new Theater(theaterName);
-                    return theaterRepository.save(newTheater);
-                });
+        Theater theater = theaterService.getOrCreateTheater(theaterName);
 
         // Set showtime parameters.
         showtime.setMovie(movie);
@@ -57,37 +116,142 @@ public class ShowtimeService {
             throw new IllegalArgumentException("Showtime startTime must be before endTime");
         }
 
-        // Check for overlapping showtimes before saving. If an overlap exists, throw a OverlappingShowtimeException.
-        List<Showtime> overlapping = showtimeRepository.findOverlappingShowtimes(
-                theater, showtime.getEndTime(), showtime.getStartTime());
-
-        if (!overlapping.isEmpty()) {
-            throw new OverlappingShowtimeException("This showtime overlaps with an existing one in the same theater.");
+        // Check for overlapping showtimes and reserve the slot in one step. If an overlap exists, throw a OverlappingShowtimeException.
+        ShowtimeIntervalIndex.Slot slot = showtimeIntervalIndex.tryReserve(
+                theater.getId(), showtime.getStartTime(), showtime.getEndTime(), null);
+        if (slot == null) {
+            throw OverlappingShowtimeException.CREATED;
         }
 
         // Wrap the save operation in a try/catch block to catch any database constraint violations.
+        // The reserved slot is released if the showtime isn't saved.
+        Showtime saved;
         try {
-            return showtimeRepository.save(showtime);
+            saved = showtimeRepository.saveAndFlush(showtime);
         } catch (DataIntegrityViolationException ex) {
+            showtimeIntervalIndex.release(slot);
+            if (isOverlapViolation(ex)) {
+                throw OverlappingShowtimeException.CREATED;
+            }
             throw new UniqueConstraintViolationException("Failed to create showtime for movie: " + movie.getTitle() + ": "
                     + ex.getMostSpecificCause().getMessage());
+        } catch (RuntimeException ex) {
+            showtimeIntervalIndex.release(slot);
+            throw ex;
         }
+        showtimeIntervalIndex.assign(slot, saved.getId());
+        TransactionHooks.onRollback(() -> showtimeIntervalIndex.release(slot));
+        return saved;
     }
 
 
+    /**
+     * Adds many showtimes at once. Movies and theaters are resolved once for the whole import, overlaps are
+     * detected in memory against existing showtimes and the other items, and all accepted showtimes are saved
+     * in one transaction. Items that fail validation are reported without affecting the others.
+     *
+     * @param items the showtimes to add; null entries are items the caller already rejected
+     * @return one result per item, in request order
+     */
+    @Transactional
+    public List<BulkShowtimeResult> addShowtimes(List<BulkShowtime> items) {
+        BulkShowtimeResult[] results = new BulkShowtimeResult[items.size()];
+
+        // Resolve all movies with one query.
+        Set<Long> movieIds = items.stream().filter(Objects::nonNull).map(BulkShowtime::movieId).collect(Collectors.toSet());
+        Map<Long, Movie> movies = movieRepository.findAllById(movieIds).stream()
+                .collect(Collectors.toMap(Movie::getId, Function.identity()));
+
+        // Resolve all theaters with one query, creating the missing ones with DEFAULT_CAPACITY.
+        Set<String> theaterNames = items.stream().filter(Objects::nonNull).map(BulkShowtime::theaterName).collect(Collectors.toSet());
+        Map<String, Theater> theaters = theaterService.getOrCreateTheaters(theaterNames);
+
+        // Process items per theater in start time order, reserving a slot for every accepted one.
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) != null) {
+                order.add(i);
+            }
+        }
+        order.sort(Comparator.comparing((Integer i) -> items.get(i).theaterName())
+                .thenComparing(i -> items.get(i).startTime()));
+
+        List<Integer> accepted = new ArrayList<>();
+        List<Showtime> showtimes = new ArrayList<>();
+        List<ShowtimeIntervalIndex.Slot> slots = new ArrayList<>();
+        for (int i : order) {
+            BulkShowtime item = items.get(i);
+            Movie movie = movies.get(item.movieId());
+            if (movie == null) {
+                results[i] = BulkShowtimeResult.rejected(i, "Movie not found: " + item.movieId());
+                continue;
+            }
+            if (!item.startTime().isBefore(item.endTime())) {
+                results[i] = BulkShowtimeResult.rejected(i, "Showtime startTime must be before endTime");
+                continue;
+            }
+
+            Theater theater = theaters.get(item.theaterName());
+            ShowtimeIntervalIndex.Slot slot = showtimeIntervalIndex.tryReserve(
+                    theater.getId(), item.startTime(), item.endTime(), null);
+            if (slot == null) {
+                results[i] = BulkShowtimeResult.rejected(i, "This showtime overlaps with an existing one in the same theater.");
+                continue;
+            }
+
+            accepted.add(i);
+            slots.add(slot);
+            showtimes.add(new Showtime(null, theater, item.price(), item.startTime(), item.endTime(), movie));
+        }
+
+        // Save all accepted showtimes together. If that fails, release every reserved slot.
+        List<Showtime> saved;
+        try {
+            saved = showtimeRepository.saveAll(showtimes);
+            showtimeRepository.flush();
+        } catch (DataIntegrityViolationException ex) {
+            slots.forEach(showtimeIntervalIndex::release);
+            if (isOverlapViolation(ex)) {
+                throw OverlappingShowtimeException.IMPORTED;
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            slots.forEach(showtimeIntervalIndex::release);
+            throw ex;
+        }
+        TransactionHooks.onRollback(() -> slots.forEach(showtimeIntervalIndex::release));
+
+        for (int k = 0; k < saved.size(); k++) {
+            showtimeIntervalIndex.assign(slots.get(k), saved.get(k).getId());
+            results[accepted.get(k)] = BulkShowtimeResult.created(accepted.get(k), saved.get(k).getId());
+        }
+        return Arrays.asList(results);
+    }
+
+
+    @Transactional
     public Showtime updateShowtime(Long showtimeId, Showtime updatedShowtime, Long movieId, String theaterName) {
         // Lookup the showtime by ID. If it's not found, throw a ResourceNotFoundException.
         Showtime existing = showtimeRepository.findById(showtimeId)
                 .orElseThrow(() -> new ResourceNotFoundException("Showtime not found: " + showtimeId));
 
         // Lookup the theater by name. If it's not found, throw a ResourceNotFoundException.
-        Theater theater = theaterRepository.findByName(theaterName)
-                .orElseGet(() -> theaterRepository.save(new Theater(theaterName)));
+        Theater theater = theaterService.getOrCreateTheater(theaterName);
 
         // Lookup the movie by ID. If it's not found, throw a ResourceNotFoundException.
         Movie movie = movieRepository.findById(movieId)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found: " + movieId));
 
+        // Moving the showtime to another theater changes its capacity, so its seat map has to be reloaded.
+        // Journaled bookings not yet in the database must land first, against the seats they were sold for.
+        if (!theater.getId().equals(existing.getTheater().getId())) {
+            if (bookingJournalService.hasPendingBookings(showtimeId)) {
+                throw new IllegalStateException("Cannot move showtime " + showtimeId
+                        + " to another theater while its journaled bookings are being written. Please try again shortly.");
+            }
+            TransactionHooks.afterCompletion(() -> seatOccupancyService.evict(showtimeId));
+        }
+
         // Set showtime parameters.
         existing.setPrice(updatedShowtime.getPrice());
         existing.setStartTime(updatedShowtime.getStartTime());
@@ -100,26 +264,44 @@ public class ShowtimeService {
             throw new IllegalArgumentException("Showtime startTime must be before endTime");
         }
 
-        // Check for overlapping showtimes before saving. If an overlap exists, throw a OverlappingShowtimeException.
-        List<Showtime> overlapping = showtimeRepository.findOverlappingShowtimes(
-                theater, updatedShowtime.getEndTime(), updatedShowtime.getStartTime());
-
-        // Exclude the current showtime from the overlap check.
-        overlapping.removeIf(s -> java.util.Objects.equals(s.getId(), showtimeId));
-        if (!overlapping.isEmpty()) {
-            throw new OverlappingShowtimeException("Updated showtime overlaps with an existing one in the same theater.");
+        // Check for overlapping showtimes, ignoring the current slot of this showtime, and reserve the new slot.
+        // If an overlap exists, throw a OverlappingShowtimeException.
+        ShowtimeIntervalIndex.Slot previousSlot = showtimeIntervalIndex.findSlot(showtimeId);
+        ShowtimeIntervalIndex.Slot slot = showtimeIntervalIndex.tryReserve(
+                theater.getId(), updatedShowtime.getStartTime(), updatedShowtime.getEndTime(), showtimeId);
+        if (slot == null) {
+            throw OverlappingShowtimeException.UPDATED;
         }
 
+        // The cached snapshot may now have the wrong theater, capacity or start time.
+        showtimeSnapshotService.evict(List.of(showtimeId));
+
         // Wrap the save operation in a try/catch block to catch any database constraint violations.
+        // Both slots stay reserved until the outcome is known: the new one is kept on commit, the old one on rollback.
+        Showtime saved;
         try {
-            return showtimeRepository.save(existing);
+            saved = showtimeRepository.saveAndFlush(existing);
         } catch (DataIntegrityViolationException ex) {
+            showtimeIntervalIndex.release(slot);
+            if (isOverlapViolation(ex)) {
+                throw OverlappingShowtimeException.UPDATED;
+            }
             throw new UniqueConstraintViolationException("Data integrity violation while updating showtime: "
                     + ex.getMostSpecificCause().getMessage());
+        } catch (RuntimeException ex) {
+            showtimeIntervalIndex.release(slot);
+            throw ex;
         }
+        TransactionHooks.afterCommit(() -> {
+            showtimeIntervalIndex.release(previousSlot);
+            showtimeIntervalIndex.assign(slot, showtimeId);
+        });
+        TransactionHooks.onRollback(() -> showtimeIntervalIndex.release(slot));
+        return saved;
     }
 
 
+    @Transactional(readOnly = true)
     public Showtime getShowtime(Long showtimeId) {
         // Lookup the showtime by ID. If it's not found, throw a ResourceNotFoundException.
         return showtimeRepository.findById(showtimeId)
@@ -127,21 +309,113 @@ public class ShowtimeService {
     }
 
 
+    /**
+     * Lists showtimes matching every given filter, in start time order, one keyset page at a time.
+     *
+     * @param from   showtimes starting at or after this time, or null
+     * @param to     showtimes starting before this time, or null
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public ShowtimePage searchShowtimes(Long movieId, String theaterName, LocalDateTime from, LocalDateTime to,
+                                       String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Search 'from' must be before 'to'");
+        }
+
+        // Lookup the theater by name. If it's not found, throw a ResourceNotFoundException.
+        Long theaterId = null;
+        if (theaterName != null) {
+            theaterId = theaterRepository.findByName(theaterName)
+                    .orElseThrow(() -> new ResourceNotFoundException("Theater not found: " + theaterName))
+                    .getId();
+        }
+
+        // The cursor is the (start time, id) of the previous page's last showtime.
+        LocalDateTime afterStart = null;
+        Long afterId = null;
+        if (cursor != null) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                afterStart = LocalDateTime.parse(parts[0]);
+                afterId = Long.valueOf(parts[1]);
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+            }
+        }
+
+        // Fill in the theater names from the theater cache instead of joining in the query.
+        Map<Long, String> theaterNames = new HashMap<>();
+        List<ShowtimeListing> showtimes = showtimeSearchRepository.search(
+                        movieId, theaterId, from, to, afterStart, afterId, pageSize).stream()
+                .map(listing -> listing.withTheater(theaterNames.computeIfAbsent(listing.theaterId(),
+                        id -> theaterRepository.findById(id).map(Theater::getName).orElse(null))))
+                .toList();
+        String nextCursor = null;
+        if (showtimes.size() == pageSize) {
+            ShowtimeListing last = showtimes.get(showtimes.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.startTime() + "|" + last.id()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new ShowtimePage(showtimes, nextCursor);
+    }
+
+    public SeatBitmap.Snapshot getSeatAvailability(Long showtimeId) {
+        // Serve from the in-memory seat map; only the first request for a showtime loads it.
+        SeatBitmap seats = seatOccupancyService.findSeats(showtimeId);
+        if (seats == null) {
+            seats = seatOccupancyService.getSeats(showtimeId, showtimeSnapshotService.getSnapshot(showtimeId).capacity());
+        }
+        return seats.snapshot();
+    }
+
+    // Seat availability from bookings alone, without holds and uncommitted claims; what the seat stream starts from.
+    public SeatBitmap.Snapshot getBookedSeats(Long showtimeId) {
+        return seatOccupancyService.getBookedSeats(showtimeId, showtimeSnapshotService.getSnapshot(showtimeId).capacity());
+    }
+
+
+    @Transactional
     public void deleteShowtime(Long showtimeId) {
         // Lookup the showtime by ID. If it's not found, throw a ResourceNotFoundException.
         Showtime showtime = showtimeRepository.findById(showtimeId)
                 .orElseThrow(() -> new ResourceNotFoundException("Showtime not found: " + showtimeId));
 
-        // Check if there are any bookings associated with this showtime. if so, throw a MovieDeletionException.
-        if (bookingRepository.existsByShowtime(showtime)) {
+        // Check if there are any bookings associated with this showtime, including journaled ones not yet in the
+        // database. if so, throw a MovieDeletionException.
+        if (bookingRepository.existsByShowtime(showtime) || bookingJournalService.hasPendingBookings(showtimeId)) {
             throw new MovieDeletionException("Cannot delete showtime " + showtimeId +
                     " because it has bookings associated. Please delete the bookings first.");
         }
 
-        // Delete the showtime.
+        // Delete the showtime and drop its in-memory snapshot, slot, holds and seat map, and end its seat streams.
         showtimeRepository.delete(showtime);
+        showtimeSnapshotService.evict(List.of(showtimeId));
+        TransactionHooks.afterCommit(() -> {
+            showtimeIntervalIndex.release(showtimeIntervalIndex.findSlot(showtimeId));
+            seatHoldService.releaseHolds(showtimeId);
+            seatOccupancyService.evict(showtimeId);
+            seatStreamService.closeShowtime(showtimeId);
+        });
     }
 
-}
 
+    /**
+     * Whether a failed write was rejected by the ex_showtimes_no_overlap exclusion constraint (PostgreSQL only).
+     * That constraint catches overlaps the in-memory index can't see, e.g. ones written by another instance.
+     */
+    private static boolean isOverlapViolation(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlEx && EXCLUSION_VIOLATION.equals(sqlEx.getSQLState())) {
+                return true;
+            }
+        }
+        String message = ex.getMostSpecificCause().getMessage();
+        return message != null && message.contains(NO_OVERLAP_CONSTRAINT);
+    }
 
+}
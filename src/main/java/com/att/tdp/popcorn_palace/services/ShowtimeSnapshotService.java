@@ -0,0 +1,53 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.exceptions.ResourceNotFoundException;
+import com.att.tdp.popcorn_palace.repositories.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.repositories.ShowtimeSnapshot;
+import com.att.tdp.popcorn_palace.util.TransactionHooks;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+
+@Service
+public class ShowtimeSnapshotService {
+
+    private final ShowtimeRepository showtimeRepository;
+
+    // Read-through cache of showtime metadata for the booking hot path.
+    private final Cache<Long, ShowtimeSnapshot> snapshots;
+
+    public ShowtimeSnapshotService(ShowtimeRepository showtimeRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${booking.showtime-snapshots.max-size:50000}") long maxSize) {
+        this.showtimeRepository = showtimeRepository;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "showtime.snapshots");
+    }
+
+    public ShowtimeSnapshot getSnapshot(Long showtimeId) {
+        // Lookup the snapshot, loading it on a miss. If the showtime doesn't exist, throw a ResourceNotFoundException.
+        ShowtimeSnapshot snapshot = snapshots.get(showtimeId,
+                id -> showtimeRepository.findSnapshotById(id).orElse(null));
+        if (snapshot == null) {
+            throw new ResourceNotFoundException("Showtime not found: " + showtimeId);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops the snapshots right away and again once the current transaction completes,
+     * so a reader that reloaded the old row before the commit can't keep it cached.
+     */
+    public void evict(Collection<Long> showtimeIds) {
+        snapshots.invalidateAll(showtimeIds);
+        TransactionHooks.afterCompletion(() -> snapshots.invalidateAll(showtimeIds));
+    }
+}
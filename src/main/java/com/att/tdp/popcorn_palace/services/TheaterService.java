@@ -1,89 +1,186 @@
 package com.att.tdp.popcorn_palace.services;
 
-import com.att.tdp.popcorn_palace.entities.Showtime;
+import com.att.tdp.popcorn_palace.config.ReadWriteRoutingDataSource;
 import com.att.tdp.popcorn_palace.entities.Theater;
 import com.att.tdp.popcorn_palace.exceptions.ResourceNotFoundException;
 import com.att.tdp.popcorn_palace.exceptions.TheaterDeletionException;
 import com.att.tdp.popcorn_palace.exceptions.UniqueConstraintViolationException;
+import com.att.tdp.popcorn_palace.repositories.CatalogStreamRepository;
 import com.att.tdp.popcorn_palace.repositories.ShowtimeRepository;
 import com.att.tdp.popcorn_palace.repositories.TheaterRepository;
+import com.att.tdp.popcorn_palace.util.SerializedSnapshot;
+import com.att.tdp.popcorn_palace.util.TransactionHooks;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class TheaterService {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final TheaterRepository theaterRepository;
+    private final CatalogStreamRepository catalogStreamRepository;
     private final ShowtimeRepository showtimeRepository;
+    private final ShowtimeSnapshotService showtimeSnapshotService;
+    private final SeatOccupancyService seatOccupancyService;
+
+    // The full theater list as served by GET /theaters/all, rebuilt after each change.
+    private final SerializedSnapshot catalogSnapshot;
 
     public TheaterService(TheaterRepository theaterRepository,
-                          ShowtimeRepository showtimeRepository) {
+                          CatalogStreamRepository catalogStreamRepository,
+                          ShowtimeRepository showtimeRepository,
+                          ShowtimeSnapshotService showtimeSnapshotService,
+                          SeatOccupancyService seatOccupancyService,
+                          ObjectMapper objectMapper) {
         this.theaterRepository = theaterRepository;
+        this.catalogStreamRepository = catalogStreamRepository;
         this.showtimeRepository = showtimeRepository;
+        this.showtimeSnapshotService = showtimeSnapshotService;
+        this.seatOccupancyService = seatOccupancyService;
+        // Read from the primary, so a rebuild right after a write can't cache a lagging replica's view.
+        this.catalogSnapshot = new SerializedSnapshot(() ->
+                objectMapper.writeValueAsBytes(ReadWriteRoutingDataSource.onPrimary(theaterRepository::findAll)));
     }
 
+    @Transactional
     public Theater addTheater(Theater theater) {
+        catalogSnapshot.invalidate();
+
         // Wrap the save operation in a try/catch block to catch any database constraint violations.
         try {
-            return theaterRepository.save(theater);
+            return theaterRepository.saveAndFlush(theater);
         } catch (DataIntegrityViolationException ex) {
             throw new UniqueConstraintViolationException("Theater name must be unique. "
                     + ex.getMostSpecificCause().getMessage());
         }
     }
 
+    // Returns the theater with this name, creating it with DEFAULT_CAPACITY if there is none.
+    @Transactional
+    public Theater getOrCreateTheater(String name) {
+        return theaterRepository.findByName(name)
+                .orElseGet(() -> {
+                    catalogSnapshot.invalidate();
+                    return theaterRepository.save(new Theater(name));
+                });
+    }
+
+    // Returns the theaters with these names by name, creating the missing ones with DEFAULT_CAPACITY.
+    @Transactional
+    public Map<String, Theater> getOrCreateTheaters(Set<String> names) {
+        Map<String, Theater> theaters = theaterRepository.findByNameIn(names).stream()
+                .collect(Collectors.toMap(Theater::getName, Function.identity()));
+        List<Theater> newTheaters = names.stream()
+                .filter(name -> !theaters.containsKey(name))
+                .map(Theater::new)
+                .toList();
+        if (!newTheaters.isEmpty()) {
+            catalogSnapshot.invalidate();
+            theaterRepository.saveAll(newTheaters).forEach(theater -> theaters.put(theater.getName(), theater));
+        }
+        return theaters;
+    }
+
+    @Transactional(readOnly = true)
     public List<Theater> getAllTheaters() {
         return theaterRepository.findAll();
     }
 
+    // The full theater list, pre-serialized. Only the first read after a change touches the database.
+    public SerializedSnapshot.Content getCatalogSnapshot() {
+        return catalogSnapshot.get();
+    }
+
+    /**
+     * Returns one keyset page of theaters: up to {@code limit} theaters with an id greater than {@code after},
+     * in id order. The last id of a page is the {@code after} of the next one.
+     */
+    @Transactional(readOnly = true)
+    public List<Theater> getTheaters(Long after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return theaterRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after, Limit.of(pageSize));
+    }
+
+    // Hand every theater to the consumer as it is read, without loading the table into memory.
+    @Transactional(readOnly = true)
+    public void streamTheaters(Consumer<? super Theater> consumer) {
+        catalogStreamRepository.streamTheaters(consumer);
+    }
+
+    @Transactional(readOnly = true)
     public Theater getTheater(Long theaterId) {
         // Lookup the theater by ID. If it's not found, throw a ResourceNotFoundException.
         return theaterRepository.findById(theaterId)
                 .orElseThrow(() -> new ResourceNotFoundException("Theater not found: " + theaterId));
     }
 
+    @Transactional(readOnly = true)
     public Theater getTheaterByName(String name) {
         // Lookup the theater by name. If it's not found, throw a ResourceNotFoundException.
         return theaterRepository.findByName(name)
                 .orElseThrow(() -> new ResourceNotFoundException("Theater not found: " + name));
     }
 
+    @Transactional
     public Theater updateTheater(Long theaterId, Theater updatedTheater) {
         // Lookup the theater by ID. If it's not found, throw a ResourceNotFoundException.
         Theater theater = theaterRepository.findById(theaterId)
                 .orElseThrow(() -> new ResourceNotFoundException("Theater not found: " + theaterId));
 
+        // A capacity change must reach the cached snapshots and seat maps of every showtime in this theater right away.
+        if (theater.getCapacity() != updatedTheater.getCapacity()) {
+            List<Long> showtimeIds = showtimeRepository.findIdsByTheaterId(theaterId);
+            showtimeSnapshotService.evict(showtimeIds);
+            TransactionHooks.afterCompletion(() -> showtimeIds.forEach(seatOccupancyService::evict));
+        }
+
+        catalogSnapshot.invalidate();
+
         // Set theater parameters.
         theater.setName(updatedTheater.getName());
         theater.setCapacity(updatedTheater.getCapacity());
 
         // Wrap the save operation in a try/catch block to catch any database constraint violations.
         try {
-            return theaterRepository.save(theater);
+            return theaterRepository.saveAndFlush(theater);
         } catch (DataIntegrityViolationException ex) {
             throw new UniqueConstraintViolationException("Theater name must be unique. "
                     + ex.getMostSpecificCause().getMessage());
         }
     }
 
+    @Transactional
     public void deleteTheater(Long theaterId) {
         // Lookup the theater by ID. If it's not found, throw a ResourceNotFoundException.
         Theater theater = theaterRepository.findById(theaterId)
                 .orElseThrow(() -> new ResourceNotFoundException("Theater not found: " + theaterId));
 
         // Check if there are any showtimes using this theater. If so, it can't be deleted until they are deleted.
-        List<Showtime> showtimes = showtimeRepository.findByTheater(theater);
-        if (!showtimes.isEmpty()) {
-            String ids = showtimes.stream()
-                    .map(s -> s.getId().toString())
-                    .reduce((a, b) -> a + ", " + b)
-                    .orElse("");
+        List<Long> showtimeIds = showtimeRepository.findIdsByTheaterId(theater.getId());
+        if (!showtimeIds.isEmpty()) {
+            String ids = showtimeIds.stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(", "));
             throw new TheaterDeletionException("Cannot delete theater because it is used by showtimes with IDs: " + ids);
         }
 
         // Delete the theater.
+        catalogSnapshot.invalidate();
         theaterRepository.delete(theater);
     }
 }
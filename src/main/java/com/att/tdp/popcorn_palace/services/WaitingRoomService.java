@@ -0,0 +1,338 @@
+package com.att.tdp.popcorn_palace.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Virtual waiting rooms for high-demand showtimes.
+ * <p>
+ * While a showtime's room is open, users join a queue and get a signed token that holds their place in it. Places
+ * are admitted in order at a rate that follows the showtime's measured booking throughput, so the booking path
+ * gets about as many users as it can serve. Only admitted tokens may book the showtime.
+ * <p>
+ * Everything lives in memory. Polling a position only checks the token's signature and compares its place with the
+ * room's admission mark.
+ */
+@Service
+public class WaitingRoomService {
+
+    public static final String TOKEN_HEADER = "X-Queue-Token";
+
+    private static final String HMAC = "HmacSHA256";
+    // showtime id, room epoch, place, user id (two longs), expiry
+    private static final int PAYLOAD_BYTES = 6 * Long.BYTES;
+    private static final int SIGNATURE_BYTES = 16;
+    // Unpadded base64 of the payload and signature.
+    private static final int TOKEN_LENGTH = ((PAYLOAD_BYTES + SIGNATURE_BYTES) * 8 + 5) / 6;
+
+    /**
+     * Whether a booking request may go ahead.
+     */
+    public enum Admission {
+        // The showtime has no waiting room.
+        OPEN,
+        ADMITTED,
+        // The token's place has not been admitted yet.
+        WAITING,
+        // No token, or a token that is invalid, expired or for another user or showtime.
+        REJECTED;
+
+        public boolean isAllowed() {
+            return this == OPEN || this == ADMITTED;
+        }
+    }
+
+    /**
+     * A place in a showtime's queue. {@code position} counts the places admitted before this one; 0 means admitted.
+     * {@code token} is null when the showtime has no waiting room.
+     */
+    public record QueueTicket(String token, long position, boolean admitted, long retryAfterMillis) {
+    }
+
+    public record RoomStatus(Long showtimeId, boolean open, long joined, long admitted, double admissionRate,
+                             double bookingRate, double minRate, double maxRate) {
+    }
+
+    // The queue of one showtime. Rates and the admission credit are only touched by the ticker thread.
+    private static final class Room {
+        private final Long showtimeId;
+        private final long epoch;
+        private volatile double minRate;
+        private volatile double maxRate;
+
+        // The last place handed out, and the last place admitted. Places start at 1.
+        private final AtomicLong joined = new AtomicLong();
+        private volatile long admittedUntil;
+        // A user who joins again keeps their place.
+        private final Map<UUID, Long> places = new ConcurrentHashMap<>();
+        // Successful bookings of this showtime since the last tick.
+        private final LongAdder bookings = new LongAdder();
+
+        private volatile double bookingRate;
+        private volatile double admissionRate;
+        private double credit;
+
+        private Room(Long showtimeId, long epoch, double minRate, double maxRate) {
+            this.showtimeId = showtimeId;
+            this.epoch = epoch;
+            this.minRate = minRate;
+            this.maxRate = maxRate;
+        }
+    }
+
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    private final double defaultMinRate;
+    private final double defaultMaxRate;
+    private final double headroom;
+    private final double smoothingSeconds;
+    private final long tokenTtlMillis;
+    private final ScheduledExecutorService ticker;
+    private long lastTickNanos = System.nanoTime();
+
+    public WaitingRoomService(@Value("${booking.waiting-room.secret:}") String secret,
+                              @Value("${booking.waiting-room.min-rate:20}") double defaultMinRate,
+                              @Value("${booking.waiting-room.max-rate:1000}") double defaultMaxRate,
+                              @Value("${booking.waiting-room.headroom:1.25}") double headroom,
+                              @Value("${booking.waiting-room.smoothing-seconds:1}") double smoothingSeconds,
+                              @Value("${booking.waiting-room.tick-millis:100}") long tickMillis,
+                              @Value("${booking.waiting-room.token-ttl-minutes:120}") long tokenTtlMinutes) {
+        // Without a configured secret, tokens are only valid on this instance until it restarts.
+        byte[] keyBytes = secret.isEmpty() ? new byte[32] : secret.getBytes(StandardCharsets.UTF_8);
+        if (secret.isEmpty()) {
+            random.nextBytes(keyBytes);
+        }
+        this.key = new SecretKeySpec(keyBytes, HMAC);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        this.defaultMinRate = defaultMinRate;
+        this.defaultMaxRate = defaultMaxRate;
+        this.headroom = headroom;
+        this.smoothingSeconds = smoothingSeconds;
+        this.tokenTtlMillis = TimeUnit.MINUTES.toMillis(tokenTtlMinutes);
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waiting-room-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (tickMillis > 0) {
+            this.ticker.scheduleWithFixedDelay(() -> tick(System.nanoTime()), tickMillis, tickMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Opens the showtime's waiting room, or changes the admission rate bounds of an open one.
+     *
+     * @param minRate the admission rate in users per second while there is no booking throughput to follow,
+     *                null for the default
+     * @param maxRate the highest admission rate in users per second, null for the default
+     */
+    public RoomStatus open(Long showtimeId, Double minRate, Double maxRate) {
+        double min = minRate != null ? minRate : defaultMinRate;
+        double max = Math.max(min, maxRate != null ? maxRate : defaultMaxRate);
+        Room room = rooms.computeIfAbsent(showtimeId, id -> new Room(id, random.nextLong(), min, max));
+        room.minRate = min;
+        room.maxRate = max;
+        return status(room);
+    }
+
+    /**
+     * Closes the showtime's waiting room. Bookings no longer need a token and issued tokens stop being valid.
+     */
+    public void close(Long showtimeId) {
+        rooms.remove(showtimeId);
+    }
+
+    public RoomStatus getStatus(Long showtimeId) {
+        Room room = rooms.get(showtimeId);
+        if (room == null) {
+            return new RoomStatus(showtimeId, false, 0, 0, 0, 0, 0, 0);
+        }
+        return status(room);
+    }
+
+    /**
+     * Queues the user for the showtime, or returns their existing place.
+     */
+    public QueueTicket join(Long showtimeId, UUID userId) {
+        Room room = rooms.get(showtimeId);
+        if (room == null) {
+            return new QueueTicket(null, 0, true, 0);
+        }
+        long place = room.places.computeIfAbsent(userId, id -> room.joined.incrementAndGet());
+        String token = sign(room, place, userId, System.currentTimeMillis() + tokenTtlMillis);
+        return ticket(room, token, place);
+    }
+
+    /**
+     * The current position of a token in its queue.
+     *
+     * @return the ticket, or null if the token is invalid, expired or its room has closed
+     */
+    public QueueTicket poll(String token) {
+        ByteBuffer payload = verify(token);
+        if (payload == null) {
+            return null;
+        }
+        Room room = rooms.get(payload.getLong(0));
+        if (room == null || room.epoch != payload.getLong(8)) {
+            return null;
+        }
+        return ticket(room, token, payload.getLong(16));
+    }
+
+    /**
+     * Decides whether a booking request for the showtime may go ahead.
+     *
+     * @param token the queue token sent with the request, may be null
+     */
+    public Admission admit(Long showtimeId, UUID userId, String token) {
+        if (rooms.isEmpty()) {
+            return Admission.OPEN;
+        }
+        Room room = rooms.get(showtimeId);
+        if (room == null) {
+            return Admission.OPEN;
+        }
+
+        ByteBuffer payload = verify(token);
+        if (payload == null
+                || payload.getLong(0) != showtimeId
+                || payload.getLong(8) != room.epoch
+                || payload.getLong(24) != userId.getMostSignificantBits()
+                || payload.getLong(32) != userId.getLeastSignificantBits()) {
+            return Admission.REJECTED;
+        }
+        return payload.getLong(16) <= room.admittedUntil ? Admission.ADMITTED : Admission.WAITING;
+    }
+
+    /**
+     * Counts a successful booking towards the showtime's measured booking throughput.
+     */
+    public void recordBooking(Long showtimeId) {
+        if (rooms.isEmpty()) {
+            return;
+        }
+        Room room = rooms.get(showtimeId);
+        if (room != null) {
+            room.bookings.increment();
+        }
+    }
+
+    /**
+     * Updates every room's booking rate and admits the places its admission rate allows since the last tick.
+     * Runs on the ticker thread; exposed for tests that drive time themselves.
+     */
+    synchronized void tick(long nowNanos) {
+        double seconds = (nowNanos - lastTickNanos) / 1e9;
+        lastTickNanos = nowNanos;
+        if (seconds <= 0) {
+            return;
+        }
+
+        for (Room room : rooms.values()) {
+            // An exponentially weighted average of the bookings per second over about smoothingSeconds.
+            double measured = room.bookings.sumThenReset() / seconds;
+            room.bookingRate += (measured - room.bookingRate) * Math.min(1, seconds / smoothingSeconds);
+
+            // Admit a little more than is being booked, so the rate can climb until the booking path saturates.
+            double rate = Math.min(room.maxRate, Math.max(room.minRate, room.bookingRate * headroom));
+            room.admissionRate = rate;
+            room.credit += rate * seconds;
+            long admit = (long) room.credit;
+            room.credit -= admit;
+
+            // An empty queue may run ahead by a second's worth of places, so that the next arrivals go straight in
+            // without an idle period turning into a burst.
+            long joined = room.joined.get();
+            room.admittedUntil = Math.min(room.admittedUntil + admit, joined + Math.max(1, (long) rate));
+        }
+    }
+
+    private QueueTicket ticket(Room room, String token, long place) {
+        long position = Math.max(0, place - room.admittedUntil);
+        if (position == 0) {
+            return new QueueTicket(token, 0, true, 0);
+        }
+        // Poll again about when the place should be admitted, but not so rarely that the estimate goes stale.
+        double rate = Math.max(room.admissionRate, room.minRate);
+        long waitMillis = (long) (position * 1000 / rate);
+        return new QueueTicket(token, position, false, Math.min(30_000, Math.max(1_000, waitMillis / 2)));
+    }
+
+    private RoomStatus status(Room room) {
+        return new RoomStatus(room.showtimeId, true, room.joined.get(), Math.min(room.admittedUntil, room.joined.get()),
+                room.admissionRate, room.bookingRate, room.minRate, room.maxRate);
+    }
+
+    private String sign(Room room, long place, UUID userId, long expiresAtMillis) {
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_BYTES)
+                .putLong(room.showtimeId)
+                .putLong(room.epoch)
+                .putLong(place)
+                .putLong(userId.getMostSignificantBits())
+                .putLong(userId.getLeastSignificantBits())
+                .putLong(expiresAtMillis);
+        byte[] bytes = Arrays.copyOf(payload.array(), PAYLOAD_BYTES + SIGNATURE_BYTES);
+        System.arraycopy(macs.get().doFinal(payload.array()), 0, bytes, PAYLOAD_BYTES, SIGNATURE_BYTES);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Returns the payload of a valid, unexpired token, or null.
+    private ByteBuffer verify(String token) {
+        if (token == null || token.length() != TOKEN_LENGTH) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+
+        Mac mac = macs.get();
+        mac.update(bytes, 0, PAYLOAD_BYTES);
+        byte[] expected = Arrays.copyOf(mac.doFinal(), SIGNATURE_BYTES);
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, PAYLOAD_BYTES, bytes.length))) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.wrap(bytes, 0, PAYLOAD_BYTES);
+        return payload.getLong(40) < System.currentTimeMillis() ? null : payload;
+    }
+}
@@ -0,0 +1,35 @@
+package com.att.tdp.popcorn_palace.util;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Tells constraint violations apart by their SQL state, which PostgreSQL and H2 report the same way.
+ */
+public class ConstraintViolations {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+    // PostgreSQL reports every foreign key violation as 23503; H2 uses 23506 for a missing parent row.
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+    private static final String MISSING_PARENT = "23506";
+
+    public static boolean isUniqueViolation(DataIntegrityViolationException ex) {
+        String sqlState = sqlState(ex);
+        return UNIQUE_VIOLATION.equals(sqlState);
+    }
+
+    public static boolean isForeignKeyViolation(DataIntegrityViolationException ex) {
+        String sqlState = sqlState(ex);
+        return FOREIGN_KEY_VIOLATION.equals(sqlState) || MISSING_PARENT.equals(sqlState);
+    }
+
+    private static String sqlState(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlEx && sqlEx.getSQLState() != null) {
+                return sqlEx.getSQLState();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.att.tdp.popcorn_palace.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel for expiring large numbers of items with O(1) scheduling.
+ * Items are hashed into a bucket by their deadline tick; every tick processes a single bucket,
+ * so the cost of expiry is independent of the number of items that are not yet due.
+ * Cancellation is lazy: callers ignore expired items that are no longer live.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class HashedTimingWheel<T> {
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+
+    private final long tickMillis;
+    private final List<Entry<T>>[] buckets;
+    private final int mask;
+    private long lastTick;
+    private int size;
+
+    /**
+     * @param tickMillis the resolution of the wheel in milliseconds
+     * @param wheelSize  the number of buckets, rounded up to a power of two
+     * @param nowMillis  the current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        int buckets = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.buckets = new List[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new ArrayList<>();
+        }
+        this.mask = buckets - 1;
+        this.lastTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules an item to expire at the given time. Deadlines in the past expire on the next tick.
+     */
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.max(lastTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        buckets[(int) (deadlineTick & mask)].add(new Entry<>(item, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Advances the wheel to the given time.
+     *
+     * @return every item whose deadline has passed
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+
+        // Visit each bucket at most once, even if the timer fell behind by more than a full rotation.
+        long firstTick = Math.max(lastTick + 1, nowTick - mask);
+        for (long tick = firstTick; tick <= nowTick; tick++) {
+            buckets[(int) (tick & mask)].removeIf(entry -> {
+                if (entry.deadlineTick() > nowTick) {
+                    return false;
+                }
+                expired.add(entry.item());
+                return true;
+            });
+        }
+        lastTick = Math.max(lastTick, nowTick);
+        size -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
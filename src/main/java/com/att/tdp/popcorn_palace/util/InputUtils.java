@@ -2,11 +2,23 @@ package com.att.tdp.popcorn_palace.util;
 
 public class InputUtils {
 
+    // Recent results by hash, so hot movie and theater names come back as the same instance without allocating.
+    // Slots are overwritten freely; a String is immutable, so a racy read sees either a whole one or null.
+    private static final String[] CACHE = new String[1024];
+    private static final int MAX_CACHED_LENGTH = 128;
+
+    // Per-thread scratch space for the result; longer inputs get a buffer of their own.
+    private static final int MAX_BUFFER_LENGTH = 1024;
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+
     /**
      * Normalizes the input string by:
      * - Trimming leading and trailing spaces.
      * - Replacing multiple internal whitespace characters with a single space.
      * - Capitalizing the first letter of each word.
+     * <p>
+     * Done in a single pass: an input that is already normalized is returned as is, a recently seen one comes
+     * from a small cache, and anything else costs exactly one new String.
      *
      * @param input the input string
      * @return the normalized string, or null if input is null
@@ -16,23 +28,85 @@ public class InputUtils {
             return null;
         }
 
-        // Remove leading/trailing spaces and collapse multiple spaces to one.
-        String trimmed = input.trim().replaceAll("\\s+", " ");
+        // Trim as String.trim() does: every character up to and including the space.
+        int start = 0;
+        int end = input.length();
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return "";
+        }
 
-        // Split into words.
-        String[] words = trimmed.split(" ");
-        StringBuilder sb = new StringBuilder();
+        char[] buffer = BUFFER.get();
+        if (buffer.length < end - start) {
+            buffer = new char[end - start];
+            if (buffer.length <= MAX_BUFFER_LENGTH) {
+                BUFFER.set(buffer);
+            }
+        }
 
-        // Capitalize the first letter of every word.
-        for (String word : words) {
-            if (!word.isEmpty()) {
-                sb.append(Character.toUpperCase(word.charAt(0)))
-                        .append(word.substring(1))
-                        .append(" ");
+        // Collapse each run of whitespace to a space and capitalize the character after it, hashing the result
+        // as String.hashCode() would.
+        int length = 0;
+        int hash = 0;
+        boolean unchanged = start == 0 && end == input.length();
+        boolean wordStart = true;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (isWhitespace(c)) {
+                if (c != ' ' || wordStart) {
+                    unchanged = false;
+                }
+                if (!wordStart) {
+                    buffer[length++] = ' ';
+                    hash = 31 * hash + ' ';
+                    wordStart = true;
+                }
+                continue;
             }
+            if (wordStart) {
+                char upper = Character.toUpperCase(c);
+                if (upper != c) {
+                    unchanged = false;
+                    c = upper;
+                }
+                wordStart = false;
+            }
+            buffer[length++] = c;
+            hash = 31 * hash + c;
+        }
+        if (unchanged) {
+            return input;
         }
 
-        // Return the normalized string.
-        return sb.toString().trim();
+        if (length > MAX_CACHED_LENGTH) {
+            return new String(buffer, 0, length);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CACHE.length - 1);
+        String cached = CACHE[slot];
+        if (cached != null && cached.length() == length && cached.hashCode() == hash && matches(cached, buffer)) {
+            return cached;
+        }
+        String normalized = new String(buffer, 0, length);
+        CACHE[slot] = normalized;
+        return normalized;
+    }
+
+    // The characters the old "\\s+" pattern matched: ASCII whitespace only, not Unicode spaces.
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean matches(String cached, char[] buffer) {
+        for (int i = 0; i < cached.length(); i++) {
+            if (cached.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -0,0 +1,43 @@
+package com.att.tdp.popcorn_palace.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Serializes values straight to an output stream as they are produced, either as one JSON array or as
+ * newline-delimited JSON (NDJSON). Nothing is buffered beyond the stream's own buffer.
+ */
+public class JsonStreamWriter implements Consumer<Object>, Closeable {
+
+    private final SequenceWriter writer;
+
+    public JsonStreamWriter(ObjectMapper objectMapper, OutputStream out, boolean ndjson) throws IOException {
+        // Let the output stream decide when to flush instead of flushing after every value.
+        ObjectWriter objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.writer = ndjson
+                ? objectWriter.withRootValueSeparator("\n").writeValues(out)
+                : objectWriter.writeValuesAsArray(out);
+    }
+
+    @Override
+    public void accept(Object value) {
+        try {
+            writer.write(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
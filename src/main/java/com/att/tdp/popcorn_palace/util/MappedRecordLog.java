@@ -0,0 +1,363 @@
+package com.att.tdp.popcorn_palace.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of fixed-size records in memory-mapped segment files, with group commit.
+ * <p>
+ * Each record is {@code [sequence:8][payload][crc32c:4]}. Appends only copy bytes into the mapping; a flusher
+ * thread forces new records to disk every {@code groupCommitMicros} and wakes everyone waiting in
+ * {@link #awaitDurable}, so concurrent appenders share one fsync. A checkpoint file records the last sequence
+ * that has been consumed; whole segments at or below it are deleted.
+ * <p>
+ * On open, every segment is scanned and the log ends at the first record whose sequence or checksum doesn't
+ * match, which drops a torn tail left by a crash. Records after the checkpoint are returned by {@link #recover}.
+ */
+public class MappedRecordLog implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private static final class Segment {
+        final Path path;
+        final long firstSequence;
+        final MappedByteBuffer buffer;
+        int writeOffset;
+        // Everything before it is known to be on disk. Only advanced once a force has returned.
+        int forcedOffset;
+
+        Segment(Path path, long firstSequence, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int payloadSize;
+    private final int recordSize;
+    private final int recordsPerSegment;
+    private final long groupCommitNanos;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<ByteBuffer> recovered = new ArrayList<>();
+    private final FileChannel checkpointChannel;
+    private long checkpoint;
+    private long nextSequence;
+
+    // Guarded by "this": the highest appended sequence. Guarded by durableLock: the highest forced sequence.
+    private long appendedSequence;
+    private final Object durableLock = new Object();
+    private long durableSequence;
+
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    /**
+     * Opens (or creates) the log in the given directory and starts its flusher thread.
+     *
+     * @param payloadSize       the size of every record's payload in bytes
+     * @param recordsPerSegment the number of records per segment file
+     * @param groupCommitMicros how long the flusher waits between forces
+     */
+    public MappedRecordLog(Path directory, int payloadSize, int recordsPerSegment, long groupCommitMicros) throws IOException {
+        this.directory = directory;
+        this.payloadSize = payloadSize;
+        this.recordSize = Long.BYTES + payloadSize + Integer.BYTES;
+        this.recordsPerSegment = recordsPerSegment;
+        this.groupCommitNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitMicros);
+
+        Files.createDirectories(directory);
+        this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = readCheckpoint();
+        this.nextSequence = checkpoint + 1;
+        openSegments();
+        this.appendedSequence = nextSequence - 1;
+        this.durableSequence = appendedSequence;
+
+        this.flusher = new Thread(this::runFlusher, "journal-flusher-" + directory.getFileName());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Returns the payloads of the records after the checkpoint that survived the last shutdown, in sequence
+     * order starting at {@code getCheckpoint() + 1}.
+     */
+    public synchronized <T> List<T> recover(Function<ByteBuffer, T> reader) {
+        List<T> records = new ArrayList<>(recovered.size());
+        for (ByteBuffer payload : recovered) {
+            records.add(reader.apply(payload.duplicate()));
+        }
+        return records;
+    }
+
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Appends a record. The writer must put exactly {@code payloadSize} bytes. The record is not durable until
+     * {@link #awaitDurable} returns for its sequence.
+     *
+     * @return the record's sequence number
+     */
+    public synchronized long append(Consumer<ByteBuffer> writer) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.writeOffset + recordSize > segment.buffer.capacity()) {
+            if (segment != null) {
+                // A full segment is forced right away so the flusher only ever deals with the active one.
+                forceSegment(segment);
+            }
+            segment = createSegment(nextSequence);
+        }
+
+        long sequence = nextSequence;
+        ByteBuffer record = segment.buffer.slice(segment.writeOffset, recordSize);
+        record.putLong(sequence);
+        writer.accept(record);
+        if (record.position() != Long.BYTES + payloadSize) {
+            throw new IllegalArgumentException("Record payload must be exactly " + payloadSize + " bytes");
+        }
+        record.putInt(checksum(segment.buffer, segment.writeOffset));
+
+        segment.writeOffset += recordSize;
+        nextSequence++;
+        appendedSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Waits until the record with the given sequence has been forced to disk.
+     */
+    public void awaitDurable(long sequence, long timeoutMillis) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (durableLock) {
+            while (durableSequence < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed) {
+                    throw new TimeoutException("Journal record " + sequence + " was not made durable in time");
+                }
+                TimeUnit.NANOSECONDS.timedWait(durableLock, remaining);
+            }
+        }
+    }
+
+    public long getDurableSequence() {
+        synchronized (durableLock) {
+            return durableSequence;
+        }
+    }
+
+    /**
+     * Records that every record up to the given sequence has been consumed and deletes segments that only
+     * hold consumed records.
+     */
+    public synchronized void checkpoint(long sequence) throws IOException {
+        if (sequence <= checkpoint) {
+            return;
+        }
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES).putLong(0, sequence);
+        checkpointChannel.write(value, 0);
+        checkpointChannel.force(false);
+        checkpoint = sequence;
+        recovered.clear();
+
+        // Keep the active segment; drop older ones whose last record is consumed.
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            boolean active = segment == segments.get(segments.size() - 1);
+            long lastSequence = segment.firstSequence + recordsPerSegment - 1;
+            if (!active && lastSequence <= sequence) {
+                Files.deleteIfExists(segment.path);
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+        checkpointChannel.close();
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            try {
+                flush();
+            } catch (RuntimeException ex) {
+                // Waiters time out if forcing keeps failing; keep trying in case the problem is transient.
+            }
+            long parkUntil = System.nanoTime() + groupCommitNanos;
+            while (!closed && System.nanoTime() < parkUntil) {
+                LockSupport.parkNanos(parkUntil - System.nanoTime());
+                if (Thread.interrupted()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Force everything appended so far and publish the new durable sequence.
+    private void flush() {
+        long target;
+        Segment segment;
+        int from;
+        int to;
+        synchronized (this) {
+            target = appendedSequence;
+            if (segments.isEmpty() || target <= getDurableSequence()) {
+                return;
+            }
+            segment = segments.get(segments.size() - 1);
+            from = segment.forcedOffset;
+            to = segment.writeOffset;
+        }
+        // Forcing happens outside the append lock, so appenders keep going while the disk works. If it throws,
+        // nothing below runs: the range stays unforced and the next flush tries it again.
+        if (to > from) {
+            force(segment.buffer, from, to - from);
+        }
+        synchronized (this) {
+            segment.forcedOffset = Math.max(segment.forcedOffset, to);
+        }
+        synchronized (durableLock) {
+            if (target > durableSequence) {
+                durableSequence = target;
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void forceSegment(Segment segment) {
+        if (segment.writeOffset > segment.forcedOffset) {
+            force(segment.buffer, segment.forcedOffset, segment.writeOffset - segment.forcedOffset);
+            segment.forcedOffset = segment.writeOffset;
+        }
+    }
+
+    // Forces part of a segment to disk. Tests override it to make the disk fail.
+    void force(MappedByteBuffer buffer, int index, int length) {
+        buffer.force(index, length);
+    }
+
+    private long readCheckpoint() throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES);
+        return checkpointChannel.read(value, 0) == Long.BYTES ? value.getLong(0) : 0;
+    }
+
+    // Map existing segments, collect the records after the checkpoint, and cut the log at the first bad record.
+    private void openSegments() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        boolean ended = false;
+        for (Path path : paths) {
+            long firstSequence = parseFirstSequence(path);
+            if (ended || (!segments.isEmpty() && firstSequence != nextSequence)) {
+                // Anything after a broken record or a gap was never acknowledged.
+                ended = true;
+                Files.deleteIfExists(path);
+                continue;
+            }
+            Segment segment = new Segment(path, firstSequence, map(path));
+            long expected = firstSequence;
+            int offset = 0;
+            while (offset + recordSize <= segment.buffer.capacity()) {
+                if (segment.buffer.getLong(offset) != expected
+                        || segment.buffer.getInt(offset + recordSize - Integer.BYTES) != checksum(segment.buffer, offset)) {
+                    ended = true;
+                    break;
+                }
+                if (expected > checkpoint) {
+                    ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+                    payload.put(segment.buffer.slice(offset + Long.BYTES, payloadSize)).flip();
+                    recovered.add(payload);
+                }
+                expected++;
+                offset += recordSize;
+            }
+            segment.writeOffset = offset;
+            segment.forcedOffset = offset;
+            nextSequence = expected;
+            segments.add(segment);
+        }
+
+        // Clear the torn tail, so stale bytes from before the crash can't look valid after new appends.
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            int tail = last.buffer.capacity() - last.writeOffset;
+            if (tail > 0) {
+                last.buffer.put(last.writeOffset, new byte[tail]);
+                last.buffer.force(last.writeOffset, tail);
+            }
+        }
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, firstSequence, map(path));
+        segments.add(segment);
+        return segment;
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordSize * recordsPerSegment);
+        }
+    }
+
+    private static long parseFirstSequence(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException ex) {
+            throw new UncheckedIOException(new IOException("Unexpected journal segment name: " + name));
+        }
+    }
+
+    // CRC of the sequence and payload of the record at the given offset.
+    private int checksum(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, recordSize - Integer.BYTES));
+        return (int) crc.getValue();
+    }
+}
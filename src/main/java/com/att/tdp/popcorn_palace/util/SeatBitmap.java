@@ -0,0 +1,125 @@
+package com.att.tdp.popcorn_palace.util;
+
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free occupancy map for the seats of a single showtime.
+ * Seat numbers are 1-based; seat n is stored in bit (n - 1).
+ */
+public class SeatBitmap {
+
+    // Largest capacity a bitmap is built for; about 12 KiB of words, and a 17 KB encoded snapshot.
+    public static final int MAX_CAPACITY = 100_000;
+
+    private final int capacity;
+    private final AtomicLongArray words;
+
+    // Bumped on every change so the encoded snapshot is only rebuilt when the seats actually changed.
+    private final AtomicLong version = new AtomicLong();
+    private volatile EncodedSnapshot encoded;
+
+    /**
+     * Seat availability in compact form. {@code bookedSeats} is the base64 encoding of a little-endian
+     * bitset (the layout of {@link java.util.BitSet#toByteArray()}) where bit (n - 1) is set if seat n is taken.
+     */
+    public record Snapshot(int capacity, int available, String bookedSeats) {
+    }
+
+    private record EncodedSnapshot(long version, Snapshot snapshot) {
+    }
+
+    public SeatBitmap(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Seat capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        this.capacity = capacity;
+        this.words = new AtomicLongArray((capacity + 63) >>> 6);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Atomically marks the seat as taken.
+     *
+     * @param seatNumber the 1-based seat number
+     * @return true if this call claimed the seat, false if it was already taken
+     */
+    public boolean tryClaim(int seatNumber) {
+        int index = (seatNumber - 1) >>> 6;
+        long mask = 1L << ((seatNumber - 1) & 63);
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current | mask)) {
+                version.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Marks the seat as free again.
+     *
+     * @param seatNumber the 1-based seat number
+     */
+    public void release(int seatNumber) {
+        int index = (seatNumber - 1) >>> 6;
+        long mask = 1L << ((seatNumber - 1) & 63);
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) == 0) {
+                return;
+            }
+            if (words.compareAndSet(index, current, current & ~mask)) {
+                version.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    public boolean isTaken(int seatNumber) {
+        return (words.get((seatNumber - 1) >>> 6) & (1L << ((seatNumber - 1) & 63))) != 0;
+    }
+
+    public int countTaken() {
+        int count = 0;
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+
+    /**
+     * Returns the current availability, re-encoding the bitmap only if it changed since the last call.
+     *
+     * @return the encoded seat availability
+     */
+    public Snapshot snapshot() {
+        EncodedSnapshot current = encoded;
+        long currentVersion = version.get();
+        if (current != null && current.version() == currentVersion) {
+            return current.snapshot();
+        }
+
+        // Copy the words into a little-endian byte array trimmed to the capacity.
+        byte[] bytes = new byte[(capacity + 7) >>> 3];
+        int taken = 0;
+        for (int i = 0; i < words.length(); i++) {
+            long word = words.get(i);
+            taken += Long.bitCount(word);
+            for (int b = 0; b < 8 && (i << 3) + b < bytes.length; b++) {
+                bytes[(i << 3) + b] = (byte) (word >>> (b << 3));
+            }
+        }
+
+        Snapshot snapshot = new Snapshot(capacity, capacity - taken, Base64.getEncoder().encodeToString(bytes));
+        encoded = new EncodedSnapshot(currentVersion, snapshot);
+        return snapshot;
+    }
+}
@@ -0,0 +1,169 @@
+package com.att.tdp.popcorn_palace.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A JSON document kept pre-serialized and pre-gzipped, with a strong ETag derived from its content.
+ * It is built on first use and rebuilt on the next read after {@link #invalidate()}, so serving it costs
+ * no database access and no serialization.
+ */
+public class SerializedSnapshot {
+
+    // One immutable version of the document.
+    public record Content(byte[] json, byte[] gzipped, String etag) {
+
+        static Content of(byte[] json) {
+            return new Content(json, gzip(json), strongEtag(json));
+        }
+
+        /**
+         * Builds a 200 response with the gzipped bytes if the client accepts gzip, otherwise the plain JSON.
+         * Spring turns it into a 304 when {@code If-None-Match} carries the same ETag.
+         */
+        public ResponseEntity<byte[]> toResponse(String acceptEncoding) {
+            boolean gzip = acceptsGzip(acceptEncoding);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (!gzip) {
+                return response.eTag(etag).body(json);
+            }
+            // A strong ETag identifies one representation, so the gzipped bytes get their own.
+            return response.eTag(etag.substring(0, etag.length() - 1) + "-gzip\"")
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(gzipped);
+        }
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header asks for gzip: listed by name, or covered by {@code *}, with a
+     * non-zero quality that is no lower than the one given to {@code identity}.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        double identity = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase("gzip")) {
+                gzip = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            } else if (name.equalsIgnoreCase("identity")) {
+                identity = quality;
+            }
+        }
+        double quality = gzip >= 0 ? gzip : any;
+        return quality > 0 && quality >= identity;
+    }
+
+    private final Callable<byte[]> loader;
+    private final Object buildLock = new Object();
+    private long generation;
+    private volatile Content content;
+
+    /**
+     * @param loader reads the current state and serializes it to JSON
+     */
+    public SerializedSnapshot(Callable<byte[]> loader) {
+        this.loader = loader;
+    }
+
+    public Content get() {
+        Content current = content;
+        if (current != null) {
+            return current;
+        }
+        // One rebuild at a time; concurrent readers wait for it instead of all hitting the database.
+        synchronized (buildLock) {
+            current = content;
+            if (current != null) {
+                return current;
+            }
+            long builtGeneration = currentGeneration();
+            Content built;
+            try {
+                built = Content.of(loader.call());
+            } catch (Exception ex) {
+                throw new IllegalStateException("Failed to build snapshot", ex);
+            }
+            // Inside a transaction the loader may see that transaction's own uncommitted rows, so don't keep it.
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                publish(built, builtGeneration);
+            }
+            return built;
+        }
+    }
+
+    /**
+     * Drops the snapshot right away and again once the current transaction completes,
+     * so a reader that rebuilt it from the old rows before the commit can't keep it.
+     */
+    public void invalidate() {
+        clear();
+        TransactionHooks.afterCompletion(this::clear);
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    // Only keep a rebuilt snapshot if nothing invalidated it while it was being built.
+    private synchronized void publish(Content built, long builtGeneration) {
+        if (generation == builtGeneration) {
+            content = built;
+        }
+    }
+
+    private synchronized void clear() {
+        generation++;
+        content = null;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static String strongEtag(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
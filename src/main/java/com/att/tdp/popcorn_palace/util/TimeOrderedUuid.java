@@ -0,0 +1,33 @@
+package com.att.tdp.popcorn_palace.util;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates version 7 (time-ordered) UUIDs. Ids that sort by creation time keep primary key
+ * inserts at the right edge of the B-tree instead of scattering them like random UUIDs do.
+ */
+public class TimeOrderedUuid implements UuidValueGenerator {
+
+    // Last issued (millis << 12 | counter), so ids from this JVM are strictly increasing.
+    private static final AtomicLong LAST_TIMESTAMP = new AtomicLong();
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long timestamp = LAST_TIMESTAMP.updateAndGet(last -> Math.max(last + 1, now));
+
+        // 48-bit unix millis, version 7, 12-bit counter, IETF variant, 62 random bits.
+        long mostSigBits = ((timestamp >>> 12) << 16) | 0x7000L | (timestamp & 0xFFFL);
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return next();
+    }
+}
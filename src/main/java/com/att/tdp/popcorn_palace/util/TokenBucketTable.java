@@ -0,0 +1,95 @@
+package com.att.tdp.popcorn_palace.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size table of token buckets keyed by {@code long}, for rate limiting by user or showtime.
+ * <p>
+ * Each bucket is stored as a single timestamp, the time at which it will be full again (the generic cell rate
+ * algorithm). A bucket that is full again holds no state worth keeping, so its slot is simply reused: idle keys are
+ * evicted for free and memory stays bounded by the table size. Keys hash into a set of {@value #WAYS} slots; when
+ * every slot of a set is busy, the bucket closest to full is dropped, which only makes the limit more lenient for it.
+ * <p>
+ * Sets are guarded by striped locks, held for a handful of array accesses.
+ */
+public class TokenBucketTable {
+
+    private static final int WAYS = 8;
+
+    private final long[] keys;
+    private final long[] fullAt;
+    private final int setMask;
+    private final Object[] locks;
+    private final int lockMask;
+
+    /**
+     * @param maxKeys the number of buckets to keep, rounded up to a power of two of at least {@value #WAYS}
+     */
+    public TokenBucketTable(int maxKeys) {
+        int sets = Integer.highestOneBit(Math.max(1, (maxKeys + WAYS - 1) / WAYS - 1)) << 1;
+        this.keys = new long[sets * WAYS];
+        this.fullAt = new long[sets * WAYS];
+        Arrays.fill(fullAt, Long.MIN_VALUE);
+        this.setMask = sets - 1;
+        this.locks = new Object[Math.min(sets, 256)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.lockMask = locks.length - 1;
+    }
+
+    /**
+     * Takes one token from the bucket of the key.
+     *
+     * @param key           the bucket key
+     * @param intervalNanos the time to refill one token, i.e. one second divided by the rate
+     * @param burst         the capacity of the bucket in tokens
+     * @param nowNanos      the current time on a monotonic clock
+     * @return 0 if a token was taken, otherwise how many nanoseconds until one is available
+     */
+    public long tryAcquire(long key, long intervalNanos, int burst, long nowNanos) {
+        int set = mix(key) & setMask;
+        int base = set * WAYS;
+        synchronized (locks[set & lockMask]) {
+            // Find the key's bucket, or else the free slot, or else the bucket that will be full first.
+            int slot = -1;
+            int victim = base;
+            for (int i = base; i < base + WAYS; i++) {
+                if (keys[i] == key) {
+                    slot = i;
+                    break;
+                }
+                if (fullAt[i] < fullAt[victim]) {
+                    victim = i;
+                }
+            }
+            if (slot < 0) {
+                slot = victim;
+                keys[slot] = key;
+                fullAt[slot] = nowNanos;
+            }
+
+            long next = Math.max(fullAt[slot], nowNanos) + intervalNanos;
+            long excess = next - nowNanos - burst * intervalNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            fullAt[slot] = next;
+            return 0;
+        }
+    }
+
+    public int getMaxKeys() {
+        return keys.length;
+    }
+
+    // Spreads sequential ids and UUID halves over the sets (the MurmurHash3 finalizer).
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,6 @@
+-- Indexes for the queries in ShowtimeRepository and BookingRepository (H2 has no INCLUDE columns).
+CREATE INDEX IF NOT EXISTS idx_showtimes_theater_time ON showtimes (theater_id, start_time, end_time, id);
+CREATE INDEX IF NOT EXISTS idx_showtimes_movie ON showtimes (movie_id, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_user ON bookings (user_id);
+
+-- H2 has no exclusion constraints, so V3 (ex_showtimes_no_overlap) is PostgreSQL only.
@@ -0,0 +1,9 @@
+-- Indexes for GET /showtimes (ShowtimeSearchRepository), ordered by each filter's column and then (start_time, id).
+-- H2 has no INCLUDE columns; see the PostgreSQL migration for the covering versions.
+CREATE INDEX IF NOT EXISTS idx_showtimes_movie_time ON showtimes (movie_id, start_time, id);
+DROP INDEX IF EXISTS idx_showtimes_movie;
+
+CREATE INDEX IF NOT EXISTS idx_showtimes_theater_time_id ON showtimes (theater_id, start_time, id, end_time);
+DROP INDEX IF EXISTS idx_showtimes_theater_time;
+
+CREATE INDEX IF NOT EXISTS idx_showtimes_start_time ON showtimes (start_time, id);
@@ -0,0 +1,12 @@
+-- Journaled bookings that were acknowledged but could not be written to the bookings table, kept for follow-up
+-- (refund or re-seat) instead of being discarded. Filled by BookingJournalService.
+-- No foreign key: the usual reason a row lands here is that its showtime is gone.
+
+CREATE TABLE IF NOT EXISTS booking_dead_letters (
+    booking_id  UUID          NOT NULL PRIMARY KEY,
+    seat_number INTEGER       NOT NULL,
+    user_id     UUID,
+    showtime_id BIGINT        NOT NULL,
+    reason      VARCHAR(1000) NOT NULL,
+    failed_at   TIMESTAMP(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,48 @@
+-- Baseline schema. Written to be idempotent so it can adopt databases created by ddl-auto: update.
+
+CREATE SEQUENCE IF NOT EXISTS movies_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS theaters_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS showtimes_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS movies (
+    id           BIGINT       NOT NULL PRIMARY KEY,
+    title        VARCHAR(255) UNIQUE,
+    genre        VARCHAR(255),
+    duration     INTEGER      NOT NULL,
+    rating       FLOAT(53)    NOT NULL,
+    release_year INTEGER      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS theaters (
+    id       BIGINT       NOT NULL PRIMARY KEY,
+    capacity INTEGER      NOT NULL,
+    name     VARCHAR(255) UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS showtimes (
+    id         BIGINT       NOT NULL PRIMARY KEY,
+    theater_id BIGINT       NOT NULL REFERENCES theaters (id),
+    movie_id   BIGINT       NOT NULL REFERENCES movies (id),
+    price      FLOAT(53)    NOT NULL,
+    start_time TIMESTAMP(6),
+    end_time   TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS bookings (
+    booking_id  UUID    NOT NULL PRIMARY KEY,
+    seat_number INTEGER NOT NULL,
+    user_id     UUID,
+    showtime_id BIGINT  NOT NULL REFERENCES showtimes (id),
+    CONSTRAINT uk_showtime_seat UNIQUE (showtime_id, seat_number)
+);
+
+CREATE TABLE IF NOT EXISTS booking_idempotency_keys (
+    idempotency_key VARCHAR(300) NOT NULL PRIMARY KEY,
+    booking_id      UUID         NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL
+);
+
+-- Move the sequences past ids handed out by the old identity columns.
+SELECT setval('movies_seq', GREATEST((SELECT MAX(id) FROM movies), 1));
+SELECT setval('theaters_seq', GREATEST((SELECT MAX(id) FROM theaters), 1));
+SELECT setval('showtimes_seq', GREATEST((SELECT MAX(id) FROM showtimes), 1));
@@ -0,0 +1,11 @@
+-- Indexes for the queries in ShowtimeRepository and BookingRepository.
+-- bookings(showtime_id, seat_number) is already covered by uk_showtime_seat.
+
+-- Overlap checks and findByTheater: index-only scans on the theater's time slots.
+CREATE INDEX IF NOT EXISTS idx_showtimes_theater_time ON showtimes (theater_id, start_time, end_time) INCLUDE (id);
+
+-- findByMovie, used when deleting a movie.
+CREATE INDEX IF NOT EXISTS idx_showtimes_movie ON showtimes (movie_id) INCLUDE (id);
+
+-- Lookups of a user's bookings.
+CREATE INDEX IF NOT EXISTS idx_bookings_user ON bookings (user_id);
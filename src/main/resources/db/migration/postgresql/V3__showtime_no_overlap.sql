@@ -0,0 +1,7 @@
+-- Let the database itself reject overlapping showtimes in the same theater.
+-- Bounds are inclusive to match the application's overlap check, so touching showtimes conflict too.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+ALTER TABLE showtimes
+    ADD CONSTRAINT ex_showtimes_no_overlap
+    EXCLUDE USING gist (theater_id WITH =, tsrange(start_time, end_time, '[]') WITH &&);
@@ -0,0 +1,25 @@
+-- Archive tables for showtimes that ended and their bookings, filled by ShowtimeArchiveService.
+-- No foreign keys, so movies and theaters stay deletable once their showtimes are archived.
+
+CREATE TABLE IF NOT EXISTS showtimes_archive (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    theater_id  BIGINT       NOT NULL,
+    movie_id    BIGINT       NOT NULL,
+    price       FLOAT(53)    NOT NULL,
+    start_time  TIMESTAMP(6),
+    end_time    TIMESTAMP(6),
+    archived_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS bookings_archive (
+    booking_id  UUID         NOT NULL PRIMARY KEY,
+    seat_number INTEGER      NOT NULL,
+    user_id     UUID,
+    showtime_id BIGINT       NOT NULL,
+    archived_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_showtime ON bookings_archive (showtime_id);
+
+-- Lets each archive chunk find the next showtimes that ended before the cutoff without a full scan.
+CREATE INDEX IF NOT EXISTS idx_showtimes_end_time ON showtimes (end_time, id);
@@ -0,0 +1,17 @@
+-- Indexes for GET /showtimes (ShowtimeSearchRepository). Every search orders by (start_time, id), so each
+-- filter has an index that starts with its equality column and continues with the sort key. The remaining
+-- showtime columns are INCLUDEd, so a page is read with an index-only scan and no sort.
+
+-- Filter by movie (also serves findIdsByMovieId, which replaces idx_showtimes_movie).
+CREATE INDEX IF NOT EXISTS idx_showtimes_movie_time ON showtimes (movie_id, start_time, id)
+    INCLUDE (theater_id, price, end_time);
+DROP INDEX IF EXISTS idx_showtimes_movie;
+
+-- Filter by theater. Keeps the (theater_id, start_time, end_time) prefix the overlap checks use.
+CREATE INDEX IF NOT EXISTS idx_showtimes_theater_time_id ON showtimes (theater_id, start_time, id)
+    INCLUDE (end_time, movie_id, price);
+DROP INDEX IF EXISTS idx_showtimes_theater_time;
+
+-- Time range only, or no filter at all.
+CREATE INDEX IF NOT EXISTS idx_showtimes_start_time ON showtimes (start_time, id)
+    INCLUDE (movie_id, theater_id, price, end_time);
@@ -0,0 +1,4 @@
+-- What each idempotency key was used for (showtime and seat), so a key reused for a different request is
+-- rejected instead of answered with the first request's booking. Keys written before this column are not checked.
+
+ALTER TABLE booking_idempotency_keys ADD COLUMN IF NOT EXISTS request_fingerprint VARCHAR(100);
@@ -0,0 +1,4 @@
+-- Every showtime keeps its theater's seats in an in-memory bitmap (see SeatBitmap), so capacity is bounded
+-- here as well as in the API: a row outside the range would make the first booking allocate a huge bitmap.
+
+ALTER TABLE theaters ADD CONSTRAINT ck_theaters_capacity CHECK (capacity BETWEEN 1 AND 100000);
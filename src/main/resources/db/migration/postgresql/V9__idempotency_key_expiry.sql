@@ -0,0 +1,4 @@
+-- Idempotency keys are kept for booking.idempotency.ttl-minutes. BookingIdempotencyService deletes older rows
+-- on a schedule, by creation time.
+
+CREATE INDEX IF NOT EXISTS idx_booking_idempotency_keys_created ON booking_idempotency_keys (created_at);
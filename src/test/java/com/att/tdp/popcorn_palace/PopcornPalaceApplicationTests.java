@@ -1,30 +1,109 @@
 package com.att.tdp.popcorn_palace;
 
+import com.att.tdp.popcorn_palace.entities.Booking;
 import com.att.tdp.popcorn_palace.entities.Movie;
 import com.att.tdp.popcorn_palace.entities.Showtime;
 import com.att.tdp.popcorn_palace.entities.Theater;
+import com.att.tdp.popcorn_palace.exceptions.ResourceNotFoundException;
+import com.att.tdp.popcorn_palace.exceptions.SeatTakenException;
+import com.att.tdp.popcorn_palace.repositories.BookingBatchRepository;
+import com.att.tdp.popcorn_palace.repositories.BookingRepository;
 import com.att.tdp.popcorn_palace.repositories.MovieRepository;
 import com.att.tdp.popcorn_palace.repositories.ShowtimeRepository;
 import com.att.tdp.popcorn_palace.repositories.TheaterRepository;
+import com.att.tdp.popcorn_palace.services.BookingCoalescer;
+import com.att.tdp.popcorn_palace.services.BookingIdempotencyService;
+import com.att.tdp.popcorn_palace.services.BookingJournalService;
+import com.att.tdp.popcorn_palace.services.MovieService;
+import com.att.tdp.popcorn_palace.services.SeatOccupancyService;
+import com.att.tdp.popcorn_palace.services.SeatHoldService;
+import com.att.tdp.popcorn_palace.services.SeatStreamService;
+import com.att.tdp.popcorn_palace.services.ShowtimeArchiveService;
+import com.att.tdp.popcorn_palace.services.ShowtimeIntervalIndex;
+import com.att.tdp.popcorn_palace.services.TheaterService;
+import com.att.tdp.popcorn_palace.util.SeatBitmap;
+import com.att.tdp.popcorn_palace.util.TimeOrderedUuid;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static com.att.tdp.popcorn_palace.util.InputUtils.normalizeString;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -47,6 +126,54 @@ public class PopcornPalaceApplicationTests {
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	@Autowired
+	private SeatHoldService seatHoldService;
+
+	@Autowired
+	private SeatStreamService seatStreamService;
+
+	@Autowired
+	private ShowtimeIntervalIndex showtimeIntervalIndex;
+
+	@Autowired
+	private ShowtimeArchiveService showtimeArchiveService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TheaterService theaterService;
+
+	@Autowired
+	private MovieService movieService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private BookingBatchRepository bookingBatchRepository;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private SeatOccupancyService seatOccupancyService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MappingJackson2CborHttpMessageConverter cborConverter;
+
+	@Autowired
+	private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+	@Autowired
+	private BookingIdempotencyService bookingIdempotencyService;
+
+	// Size of a booking record's payload in the journal (see BookingJournalService).
+	private static final int BOOKING_RECORD_PAYLOAD = 45;
+
 	@BeforeEach
 	void setup() {
 		// Clear all repositories before each test.
@@ -122,6 +249,197 @@ public class PopcornPalaceApplicationTests {
 				.andExpect(content().string(containsString("Movie not found: " + normalizeString("NoSuchTitle"))));
 	}
 
+	@Test
+	void testMovieKeysetPagination() throws Exception {
+		List<Movie> movies = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			movies.add(new Movie(null, "Paged Movie " + i, "Drama", 100, 7.0, 2020));
+		}
+		movieRepository.saveAllAndFlush(movies);
+
+		// Walk the pages using the last id of each page as the next cursor.
+		List<String> titles = new ArrayList<>();
+		long after = 0;
+		while (true) {
+			String page = mockMvc.perform(get("/movies/all").param("after", String.valueOf(after)).param("limit", "2"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+			Movie[] pageMovies = objectMapper.readValue(page, Movie[].class);
+			if (pageMovies.length == 0) {
+				break;
+			}
+			assertTrue(pageMovies.length <= 2);
+			for (Movie movie : pageMovies) {
+				assertTrue(movie.getId() > after);
+				titles.add(movie.getTitle());
+				after = movie.getId();
+			}
+		}
+		assertEquals(movies.stream().map(Movie::getTitle).toList(), titles);
+
+		// Limits outside the allowed range are rejected.
+		mockMvc.perform(get("/movies/all").param("limit", "0"))
+				.andExpect(status().is5xxServerError())
+				.andExpect(content().string(containsString("Page limit")));
+	}
+
+	@Test
+	void testMovieCatalogSnapshotEtag() throws Exception {
+		mockMvc.perform(post("/movies")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{ \"title\": \"Snapshot Movie\", \"genre\": \"Drama\", \"duration\": 100, \"rating\": 7.0, \"releaseYear\": 2025 }"))
+				.andExpect(status().isOk());
+
+		// The catalog comes with a strong ETag; a client that already has it gets a 304 without a body.
+		MockHttpServletResponse first = mockMvc.perform(get("/movies/all"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0].title", is("Snapshot Movie")))
+				.andReturn().getResponse();
+		String etag = first.getHeader(HttpHeaders.ETAG);
+		assertNotNull(etag);
+		assertFalse(etag.startsWith("W/"));
+		mockMvc.perform(get("/movies/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		// Clients that accept gzip get the pre-compressed bytes of the same document.
+		byte[] gzipped = mockMvc.perform(get("/movies/all").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andReturn().getResponse().getContentAsByteArray();
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+			assertEquals(first.getContentAsString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		}
+
+		// Quality values count: an explicit refusal or a stronger preference for identity gets plain JSON.
+		for (String refusing : List.of("gzip;q=0", "deflate, gzip; q=0.0", "identity;q=1, x-gzip", "gzip;q=0.5, identity", "*;q=0")) {
+			mockMvc.perform(get("/movies/all").header(HttpHeaders.ACCEPT_ENCODING, refusing))
+					.andExpect(status().isOk())
+					.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+					.andExpect(content().string(first.getContentAsString()));
+		}
+		for (String accepting : List.of("GZIP;Q=0.8", "*", "br, *;q=0.5", "identity;q=0.2, gzip;q=0.9")) {
+			mockMvc.perform(get("/movies/all").header(HttpHeaders.ACCEPT_ENCODING, accepting))
+					.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+		}
+
+		// Binary formats still work; they are serialized per request.
+		mockMvc.perform(get("/movies/all").accept(MediaType.APPLICATION_CBOR))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR));
+
+		// A change through the service yields a new document and ETag, so the old ETag no longer matches.
+		mockMvc.perform(post("/movies/update/Snapshot Movie")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{ \"title\": \"Snapshot Movie\", \"genre\": \"Drama\", \"duration\": 100, \"rating\": 9.0, \"releaseYear\": 2025 }"))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/movies/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].rating", is(9.0)));
+
+		// Outside a transaction the snapshot is built once and then served from memory.
+		TransactionTemplate outside = new TransactionTemplate(transactionManager);
+		outside.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+		outside.executeWithoutResult(status -> assertSame(movieService.getCatalogSnapshot(), movieService.getCatalogSnapshot()));
+	}
+
+	@Test
+	void testMovieStreamingMatchesListAndAllocation() throws Exception {
+		List<Movie> movies = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			movies.add(new Movie(null, "Streamed Movie " + i, "Comedy", 90, 6.5, 2021));
+		}
+		movieRepository.saveAllAndFlush(movies);
+
+		// The JSON array stream has the same content as the in-memory list.
+		long listBytes = allocatedBytes();
+		String list = mockMvc.perform(get("/movies/all"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		listBytes = allocatedBytes() - listBytes;
+
+		long streamBytes = allocatedBytes();
+		String array = mockMvc.perform(get("/movies/stream").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		streamBytes = allocatedBytes() - streamBytes;
+		assertEquals(objectMapper.readTree(list), objectMapper.readTree(array));
+
+		// NDJSON has one movie per line.
+		long ndjsonBytes = allocatedBytes();
+		String ndjson = mockMvc.perform(get("/movies/stream").accept(MediaType.APPLICATION_NDJSON))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+				.andReturn().getResponse().getContentAsString();
+		ndjsonBytes = allocatedBytes() - ndjsonBytes;
+		String[] lines = ndjson.split("\n");
+		assertEquals(2_000, lines.length);
+		assertEquals("Streamed Movie 1999", objectMapper.readValue(lines[1_999], Movie.class).getTitle());
+
+		// The format follows the Accept header's quality values, and is an array for anything else.
+		mockMvc.perform(get("/movies/stream").header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-ndjson"))
+				.andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+		mockMvc.perform(get("/movies/stream").header(HttpHeaders.ACCEPT, "application/x-ndjson;q=0.5, application/json"))
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON));
+		mockMvc.perform(get("/movies/stream"))
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON));
+		mockMvc.perform(get("/movies/stream").accept(MediaType.ALL))
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON));
+
+		System.out.println("--- allocated per request for 2000 movies: list " + listBytes / 1024 + " KiB, stream (array) "
+				+ streamBytes / 1024 + " KiB, stream (ndjson) " + ndjsonBytes / 1024 + " KiB");
+	}
+
+	// Bytes allocated so far by the calling thread; MockMvc handles requests on that thread.
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // The search index is updated after commit.
+	void testSearchMoviesFollowsWrites() throws Exception {
+		Movie movie = new Movie(null, "Searchable Sunset Boulevard", "Film Noir", 110, 8.4, 1950);
+		mockMvc.perform(post("/movies")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(movie)))
+				.andExpect(status().isOk());
+		try {
+			// Found by a title prefix, a word prefix plus genre, and a typo.
+			for (String query : List.of("searchable sun", "boulev noir", "searchable sunsett")) {
+				mockMvc.perform(get("/movies/search").param("q", query))
+						.andExpect(status().isOk())
+						.andExpect(jsonPath("$[0].title", is("Searchable Sunset Boulevard")))
+						.andExpect(jsonPath("$[0].genre", is("Film Noir")));
+			}
+
+			// Renaming it re-indexes it.
+			movie.setTitle("Searchable Moonrise Boulevard");
+			mockMvc.perform(post("/movies/update/Searchable Sunset Boulevard")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(movie)))
+					.andExpect(status().isOk());
+			mockMvc.perform(get("/movies/search").param("q", "searchable").param("limit", "5"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$", hasSize(1)))
+					.andExpect(jsonPath("$[0].title", is("Searchable Moonrise Boulevard")));
+
+			// Limits outside the allowed range are rejected.
+			mockMvc.perform(get("/movies/search").param("q", "searchable").param("limit", "51"))
+					.andExpect(status().is5xxServerError())
+					.andExpect(content().string(containsString("Search limit")));
+		} finally {
+			mockMvc.perform(delete("/movies/Searchable Moonrise Boulevard"));
+			movieRepository.findByTitle(normalizeString("Searchable Sunset Boulevard"))
+					.ifPresent(leftover -> movieRepository.deleteById(leftover.getId()));
+		}
+
+		// Deleted movies drop out of the results.
+		mockMvc.perform(get("/movies/search").param("q", "searchable"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(0)));
+	}
+
 
 
 	// ---------- Theater Tests ----------
@@ -189,6 +507,51 @@ public class PopcornPalaceApplicationTests {
 				.andExpect(jsonPath("$.name", is(normalizeString("Unique Theater"))));
 	}
 
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // The second-level cache only sees committed data.
+	void testTheaterLookupsUseSecondLevelCache() throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		Theater theater = theaterService.addTheater(new Theater(null, 40, "Cached Theater"));
+		try {
+			// Repeated lookups by id and by name are served from the entity and query caches.
+			long entityHits = statistics.getDomainDataRegionStatistics("theaters").getHitCount();
+			long queryHits = statistics.getQueryCacheHitCount();
+			theaterService.getTheater(theater.getId());
+			theaterService.getTheater(theater.getId());
+			theaterService.getTheaterByName("Cached Theater");
+			theaterService.getTheaterByName("Cached Theater");
+			assertTrue(statistics.getDomainDataRegionStatistics("theaters").getHitCount() >= entityHits + 2);
+			assertTrue(statistics.getQueryCacheHitCount() >= queryHits + 1);
+
+			// Updates through the service invalidate both caches.
+			theaterService.updateTheater(theater.getId(), new Theater(null, 60, "Renamed Cached Theater"));
+			assertEquals(60, theaterService.getTheater(theater.getId()).getCapacity());
+			assertEquals(theater.getId(), theaterService.getTheaterByName("Renamed Cached Theater").getId());
+			assertThrows(ResourceNotFoundException.class, () -> theaterService.getTheaterByName("Cached Theater"));
+		} finally {
+			theaterService.deleteTheater(theater.getId());
+		}
+	}
+
+
+
+	@Test
+	void testTheaterInsertThroughput() {
+		// Sequence-generated ids let Hibernate batch these inserts instead of one round trip per row.
+		List<Theater> theaters = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			theaters.add(new Theater(null, 100, "Throughput Theater " + i));
+		}
+
+		long started = System.nanoTime();
+		List<Theater> saved = theaterRepository.saveAll(theaters);
+		theaterRepository.flush();
+		long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		System.out.println("--- inserted " + saved.size() + " theaters in " + elapsedMillis + " ms ("
+				+ (saved.size() * 1000L / elapsedMillis) + " rows/s)");
+
+		assertEquals(2_000, saved.stream().map(Theater::getId).distinct().count());
+	}
 
 
 	// ---------- Showtime Tests ----------
@@ -202,6 +565,42 @@ public class PopcornPalaceApplicationTests {
 				.andExpect(content().string(containsString("Showtime not found: 9999")));
 	}
 
+	@Test
+	void testShowtimesWithNewTheatersReachTheaterCatalog() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Catalog Movie", "Drama", 100, 7.5, 2025));
+
+		// Build the theater catalog outside the test transaction, so it is cached.
+		TransactionTemplate outside = new TransactionTemplate(transactionManager);
+		outside.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+		outside.executeWithoutResult(status -> theaterService.getCatalogSnapshot());
+		String etag = mockMvc.perform(get("/theaters/all"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		// A showtime in a theater nobody created yet creates it, and the catalog lists it under a new ETag.
+		mockMvc.perform(post("/showtimes")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format(
+								"{ \"movieId\": %d, \"theater\": \"Pop Up Theater\", \"price\": 20.0, \"startTime\": \"%s\", \"endTime\": \"%s\" }",
+								movie.getId(), LocalDateTime.of(2025, 2, 14, 10, 0), LocalDateTime.of(2025, 2, 14, 12, 0))))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/theaters/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[*].name", hasItem("Pop Up Theater")));
+
+		// The same goes for theaters created by a bulk import.
+		outside.executeWithoutResult(status -> theaterService.getCatalogSnapshot());
+		mockMvc.perform(post("/showtimes/bulk")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format(
+								"[{ \"movieId\": %d, \"theater\": \"Bulk Pop Up\", \"price\": 20.0, \"startTime\": \"%s\", \"endTime\": \"%s\" }]",
+								movie.getId(), LocalDateTime.of(2025, 2, 14, 10, 0), LocalDateTime.of(2025, 2, 14, 12, 0))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].status", is("CREATED")));
+		mockMvc.perform(get("/theaters/all"))
+				.andExpect(jsonPath("$[*].name", hasItem("Bulk Pop Up")));
+	}
+
 	@Test
 	void testAddShowtimeOverlappingConstraint() throws Exception {
 		// Create a movie and a theater.
@@ -234,8 +633,9 @@ public class PopcornPalaceApplicationTests {
 		mockMvc.perform(post("/showtimes")
 						.contentType(MediaType.APPLICATION_JSON)
 						.content(showtimeJson2))
-				.andExpect(status().is5xxServerError())
-				.andExpect(content().string(containsString("overlap")));
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code", is("SHOWTIME_OVERLAP")))
+				.andExpect(jsonPath("$.message", containsString("overlap")));
 	}
 
 	@Test
@@ -319,11 +719,211 @@ public class PopcornPalaceApplicationTests {
 		mockMvc.perform(post("/showtimes/update/" + secondShowtime.getId())
 						.contentType(MediaType.APPLICATION_JSON)
 						.content(updatePayload))
-				.andExpect(status().is5xxServerError())
-				.andExpect(content().string(containsString("overlap")));
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code", is("SHOWTIME_OVERLAP")))
+				.andExpect(jsonPath("$.message", containsString("overlap")));
+	}
+
+
+
+	@Test
+	void testIntervalIndexSerializesConcurrentWriters() throws Exception {
+		// A theater id that no real showtime uses.
+		Long theaterId = -1L;
+		LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+		List<ShowtimeIntervalIndex.Slot> reserved = new CopyOnWriteArrayList<>();
+
+		// Sixteen writers try to reserve overlapping slots at the same time; only one may win.
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		for (int i = 0; i < 16; i++) {
+			int offset = i;
+			executor.submit(() -> {
+				ShowtimeIntervalIndex.Slot slot = showtimeIntervalIndex.tryReserve(theaterId,
+						start.plusMinutes(offset), start.plusMinutes(120 + offset), null);
+				if (slot != null) {
+					reserved.add(slot);
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(1, reserved.size());
+
+		// Disjoint slots are accepted, touching ones overlap, and a showtime doesn't collide with its own slot.
+		ShowtimeIntervalIndex.Slot later = showtimeIntervalIndex.tryReserve(
+				theaterId, start.plusHours(5), start.plusHours(7), null);
+		assertNotNull(later);
+		assertNull(showtimeIntervalIndex.tryReserve(theaterId, start.plusHours(7), start.plusHours(8), null));
+		showtimeIntervalIndex.assign(later, -42L);
+		ShowtimeIntervalIndex.Slot moved = showtimeIntervalIndex.tryReserve(theaterId,
+				start.plusHours(5).plusMinutes(30), start.plusHours(7).plusMinutes(30), -42L);
+		assertNotNull(moved);
+
+		// While an update holds both its old (10-16) and new (10-11) slot, the old one still blocks 12-13
+		// even though the new one is the closest slot before it.
+		Long otherTheaterId = -2L;
+		ShowtimeIntervalIndex.Slot old = showtimeIntervalIndex.tryReserve(
+				otherTheaterId, start, start.plusHours(6), null);
+		showtimeIntervalIndex.assign(old, -43L);
+		ShowtimeIntervalIndex.Slot shortened = showtimeIntervalIndex.tryReserve(
+				otherTheaterId, start, start.plusHours(1), -43L);
+		assertNotNull(shortened);
+		// Releasing another slot just as long doesn't forget how far the old one reaches.
+		ShowtimeIntervalIndex.Slot twin = showtimeIntervalIndex.tryReserve(
+				otherTheaterId, start.plusDays(1), start.plusDays(1).plusHours(6), null);
+		assertNotNull(twin);
+		showtimeIntervalIndex.release(twin);
+		assertNull(showtimeIntervalIndex.tryReserve(otherTheaterId, start.plusHours(2), start.plusHours(3), null));
+
+		// The index lives outside the test transaction, so clean up explicitly.
+		reserved.forEach(showtimeIntervalIndex::release);
+		showtimeIntervalIndex.release(later);
+		showtimeIntervalIndex.release(moved);
+		showtimeIntervalIndex.release(old);
+		showtimeIntervalIndex.release(shortened);
 	}
 
 
+	@Test
+	void testBulkShowtimeImportReportsPerItem() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Bulk Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 80, "Bulk Theater"));
+
+		// An existing showtime from 10:00 to 12:00.
+		mockMvc.perform(post("/showtimes")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format(
+								"{ \"movieId\": %d, \"theater\": \"%s\", \"price\": 20.0, \"startTime\": \"%s\", \"endTime\": \"%s\" }",
+								movie.getId(), theater.getName(),
+								LocalDateTime.of(2025, 7, 1, 10, 0), LocalDateTime.of(2025, 7, 1, 12, 0))))
+				.andExpect(status().isOk());
+
+		// Items: ok, overlaps the existing showtime, overlaps item 0, unknown movie, new theater, invalid price.
+		String item = "{ \"movieId\": %d, \"theater\": \"%s\", \"price\": %s, \"startTime\": \"%s\", \"endTime\": \"%s\" }";
+		String ndjson = String.join("\n",
+				String.format(item, movie.getId(), "bulk theater", "20.0", LocalDateTime.of(2025, 7, 1, 13, 0), LocalDateTime.of(2025, 7, 1, 15, 0)),
+				String.format(item, movie.getId(), "Bulk Theater", "20.0", LocalDateTime.of(2025, 7, 1, 11, 0), LocalDateTime.of(2025, 7, 1, 12, 30)),
+				String.format(item, movie.getId(), "Bulk Theater", "20.0", LocalDateTime.of(2025, 7, 1, 14, 0), LocalDateTime.of(2025, 7, 1, 16, 0)),
+				String.format(item, 999999, "Bulk Theater", "20.0", LocalDateTime.of(2025, 7, 2, 10, 0), LocalDateTime.of(2025, 7, 2, 12, 0)),
+				String.format(item, movie.getId(), "Bulk Annex", "20.0", LocalDateTime.of(2025, 7, 1, 11, 0), LocalDateTime.of(2025, 7, 1, 13, 0)),
+				String.format(item, movie.getId(), "Bulk Theater", "-1.0", LocalDateTime.of(2025, 7, 3, 10, 0), LocalDateTime.of(2025, 7, 3, 12, 0)));
+
+		mockMvc.perform(post("/showtimes/bulk")
+						.contentType(MediaType.APPLICATION_NDJSON)
+						.content(ndjson))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(6)))
+				.andExpect(jsonPath("$[0].status", is("CREATED")))
+				.andExpect(jsonPath("$[1].status", is("REJECTED")))
+				.andExpect(jsonPath("$[1].error", containsString("overlap")))
+				.andExpect(jsonPath("$[2].status", is("REJECTED")))
+				.andExpect(jsonPath("$[3].error", containsString("Movie not found")))
+				.andExpect(jsonPath("$[4].status", is("CREATED")))
+				.andExpect(jsonPath("$[5].error", containsString("price")));
+
+		// The new theater was created on the fly.
+		mockMvc.perform(get("/theaters/name/Bulk Annex"))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // Each request commits on its own, as in production.
+	void testBulkShowtimeImportThroughputAgainstSingleAdds() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Import Movie", "Drama", 100, 7.5, 2025));
+		String item = "{ \"movieId\": %d, \"theater\": \"%s\", \"price\": 20.0, \"startTime\": \"%s\", \"endTime\": \"%s\" }";
+		// Showtime i of a run: 20 theaters, each with a two-hour showtime every three hours.
+		IntFunction<String> single = i -> String.format(item, movie.getId(), "Single Import " + i % 20,
+				LocalDateTime.of(2025, 8, 1, 0, 0).plusHours(3L * (i / 20)),
+				LocalDateTime.of(2025, 8, 1, 2, 0).plusHours(3L * (i / 20)));
+		IntFunction<String> bulk = i -> String.format(item, movie.getId(), "Bulk Import " + i % 20,
+				LocalDateTime.of(2025, 8, 1, 0, 0).plusHours(3L * (i / 20)),
+				LocalDateTime.of(2025, 8, 1, 2, 0).plusHours(3L * (i / 20)));
+		try {
+			// The first 500 showtimes of each path only warm up; the next 2,000 are measured.
+			int warmUp = 500;
+			int measured = 2_000;
+			long singleNanos = 0;
+			for (int i = 0; i < warmUp + measured; i++) {
+				long started = System.nanoTime();
+				mockMvc.perform(post("/showtimes")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content(single.apply(i)))
+						.andExpect(status().isOk());
+				if (i >= warmUp) {
+					singleNanos += System.nanoTime() - started;
+				}
+			}
+
+			mockMvc.perform(post("/showtimes/bulk")
+							.contentType(MediaType.APPLICATION_NDJSON)
+							.content(IntStream.range(0, warmUp).mapToObj(bulk).collect(Collectors.joining("\n"))))
+					.andExpect(status().isOk());
+			String measuredItems = IntStream.range(warmUp, warmUp + measured).mapToObj(bulk).collect(Collectors.joining("\n"));
+			long started = System.nanoTime();
+			mockMvc.perform(post("/showtimes/bulk")
+							.contentType(MediaType.APPLICATION_NDJSON)
+							.content(measuredItems))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$[?(@.status == 'CREATED')]", hasSize(measured)));
+			long bulkNanos = System.nanoTime() - started;
+
+			System.out.println("--- " + measured + " showtimes: one request each "
+					+ measured * TimeUnit.SECONDS.toNanos(1) / singleNanos + " showtimes/s, one bulk request "
+					+ measured * TimeUnit.SECONDS.toNanos(1) / bulkNanos + " showtimes/s");
+		} finally {
+			jdbcTemplate.update("DELETE FROM showtimes WHERE movie_id = ?", movie.getId());
+			jdbcTemplate.update("DELETE FROM theaters WHERE name LIKE 'Single Import %' OR name LIKE 'Bulk Import %'");
+			movieRepository.deleteById(movie.getId());
+		}
+	}
+
+	@Test
+	void testSearchShowtimesByMovieTheaterAndTime() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Search Movie", "Drama", 100, 7.5, 2025));
+		Movie otherMovie = movieRepository.save(new Movie(null, "Other Search Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 100, "Search Theater"));
+		Theater otherTheater = theaterRepository.save(new Theater(null, 100, "Other Search Theater"));
+		LocalDateTime day = LocalDateTime.of(2031, 3, 1, 10, 0);
+		for (int i = 0; i < 5; i++) {
+			showtimeRepository.save(new Showtime(null, theater, 10.0 + i, day.plusHours(3L * i), day.plusHours(3L * i + 2), movie));
+		}
+		showtimeRepository.save(new Showtime(null, otherTheater, 9.0, day.plusHours(1), day.plusHours(3), movie));
+		showtimeRepository.saveAndFlush(new Showtime(null, theater, 9.0, day.plusDays(1), day.plusDays(1).plusHours(2), otherMovie));
+
+		// Movie and time window, two per page: the cursor walks 11:00 (other theater), 13:00, 16:00.
+		String firstPage = mockMvc.perform(get("/showtimes")
+						.param("movieId", movie.getId().toString())
+						.param("from", day.plusHours(1).toString())
+						.param("to", day.plusHours(7).toString())
+						.param("limit", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.showtimes", hasSize(2)))
+				.andExpect(jsonPath("$.showtimes[0].theater", is("Other Search Theater")))
+				.andExpect(jsonPath("$.showtimes[1].price", is(11.0)))
+				.andExpect(jsonPath("$.nextCursor").isString())
+				.andReturn().getResponse().getContentAsString();
+		String cursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+		mockMvc.perform(get("/showtimes")
+						.param("movieId", movie.getId().toString())
+						.param("from", day.plusHours(1).toString())
+						.param("to", day.plusHours(7).toString())
+						.param("after", cursor)
+						.param("limit", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.showtimes", hasSize(1)))
+				.andExpect(jsonPath("$.showtimes[0].price", is(12.0)))
+				.andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+		// Theater by name (normalized like everywhere else) across both movies.
+		mockMvc.perform(get("/showtimes").param("theater", "search theater"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.showtimes", hasSize(6)))
+				.andExpect(jsonPath("$.showtimes[5].movieId", is(otherMovie.getId().intValue())));
+
+		mockMvc.perform(get("/showtimes").param("theater", "No Such Theater"))
+				.andExpect(status().isNotFound());
+	}
+
 
 	// ---------- Booking Tests ----------
 
@@ -365,8 +965,9 @@ public class PopcornPalaceApplicationTests {
 		mockMvc.perform(post("/bookings")
 						.contentType(MediaType.APPLICATION_JSON)
 						.content(validBookingJson))
-				.andExpect(status().is5xxServerError())
-				.andExpect(content().string(containsString("already booked")));
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code", is("SEAT_TAKEN")))
+				.andExpect(jsonPath("$.message", containsString("already booked")));
 
 		// Attempt to book a seat out-of-range (seat number 60 when capacity is 50).
 		String outOfRangeBookingJson = String.format(
@@ -395,6 +996,463 @@ public class PopcornPalaceApplicationTests {
 	}
 
 
+	@Test
+	void testBatchBookingIsAllOrNothing() throws Exception {
+		Movie movie = new Movie(null, "Batch Booking Movie", "Family", 95, 7.2, 2025);
+		movie = movieRepository.save(movie);
+
+		Theater theater = new Theater(null, 20, "Batch Booking Theater");
+		theater = theaterRepository.save(theater);
+
+		String showtimeJson = String.format(
+				"{ \"movieId\": %d, \"theater\": \"%s\", \"price\": 12.0, \"startTime\": \"%s\", \"endTime\": \"%s\" }",
+				movie.getId(),
+				theater.getName(),
+				LocalDateTime.of(2025, 3, 2, 15, 0).toString(),
+				LocalDateTime.of(2025, 3, 2, 17, 0).toString()
+		);
+		String showtimeResponse = mockMvc.perform(post("/showtimes")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(showtimeJson))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		Showtime showtime = objectMapper.readValue(showtimeResponse, Showtime.class);
+
+		// Book seats 1-3 in a single request.
+		String batchJson = String.format(
+				"{ \"showtimeId\": %d, \"seatNumbers\": [1, 2, 3], \"userId\": \"%s\" }",
+				showtime.getId(), "123e4567-e89b-12d3-a456-426614174000"
+		);
+		mockMvc.perform(post("/bookings/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(batchJson))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.bookingIds", hasSize(3)));
+
+		// A batch that includes a taken seat fails as a whole.
+		String conflictingJson = String.format(
+				"{ \"showtimeId\": %d, \"seatNumbers\": [4, 3, 5], \"userId\": \"%s\" }",
+				showtime.getId(), "123e4567-e89b-12d3-a456-426614174001"
+		);
+		mockMvc.perform(post("/bookings/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(conflictingJson))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code", is("SEAT_TAKEN")))
+				.andExpect(jsonPath("$.message", containsString("already booked")));
+
+		// Seat 4 was not booked by the failed batch.
+		String singleJson = String.format(
+				"{ \"showtimeId\": %d, \"seatNumber\": %d, \"userId\": \"%s\" }",
+				showtime.getId(), 4, "123e4567-e89b-12d3-a456-426614174001"
+		);
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(singleJson))
+				.andExpect(status().isOk());
+	}
+
+
+	@Test
+	void testIdempotentBookingRetry() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Retry Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 10, "Retry Theater"));
+		Showtime showtime = showtimeRepository.save(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 3, 18, 0), LocalDateTime.of(2025, 6, 3, 20, 0), movie));
+
+		String bookingJson = String.format(
+				"{ \"showtimeId\": %d, \"seatNumber\": %d, \"userId\": \"%s\" }",
+				showtime.getId(), 4, "123e4567-e89b-12d3-a456-426614174000"
+		);
+
+		// The first request books the seat.
+		String first = mockMvc.perform(post("/bookings")
+						.header("Idempotency-Key", "retry-key-1")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		String bookingId = objectMapper.readTree(first).get("bookingId").asText();
+
+		// A retry with the same key returns the same booking instead of failing on the taken seat.
+		mockMvc.perform(post("/bookings")
+						.header("Idempotency-Key", "retry-key-1")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.bookingId", is(bookingId)));
+
+		// Without the key, the seat is already booked.
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code", is("SEAT_TAKEN")))
+				.andExpect(jsonPath("$.message", containsString("already booked")));
+
+		// The same key for another seat is a client bug, not a retry.
+		mockMvc.perform(post("/bookings")
+						.header("Idempotency-Key", "retry-key-1")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson.replace("\"seatNumber\": 4", "\"seatNumber\": 5")))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code", is("IDEMPOTENCY_KEY_REUSED")));
+	}
+
+	@Test
+	void testExpiredIdempotencyKeysAreForgotten() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Expiry Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 10, "Expiry Theater"));
+		Showtime showtime = showtimeRepository.save(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 5, 18, 0), LocalDateTime.of(2025, 6, 5, 20, 0), movie));
+		String userId = "123e4567-e89b-12d3-a456-426614174000";
+		String insertKey = "INSERT INTO booking_idempotency_keys "
+				+ "(idempotency_key, booking_id, created_at, request_fingerprint) VALUES (?, ?, ?, ?)";
+		LocalDateTime expired = LocalDateTime.now().minusDays(2);
+		String fingerprint = showtime.getId() + ":4";
+
+		// The sweep deletes keys past the TTL and keeps the rest.
+		jdbcTemplate.update(insertKey, userId + ":expired-key", UUID.randomUUID(), expired, fingerprint);
+		jdbcTemplate.update(insertKey, userId + ":live-key", UUID.randomUUID(), LocalDateTime.now(), fingerprint);
+		assertTrue(bookingIdempotencyService.deleteExpiredKeys() >= 1);
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_idempotency_keys "
+				+ "WHERE idempotency_key = ?", Integer.class, userId + ":expired-key"));
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_idempotency_keys "
+				+ "WHERE idempotency_key = ?", Integer.class, userId + ":live-key"));
+
+		// An expired key the sweep hasn't reached yet no longer answers retries: the request books again.
+		UUID forgotten = UUID.randomUUID();
+		jdbcTemplate.update(insertKey, userId + ":unswept-key", forgotten, expired, fingerprint);
+		mockMvc.perform(post("/bookings")
+						.header("Idempotency-Key", "unswept-key")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format("{ \"showtimeId\": %d, \"seatNumber\": 4, \"userId\": \"%s\" }",
+								showtime.getId(), userId)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.bookingId", not(forgotten.toString())));
+		assertEquals(1, countBookings(showtime.getId()));
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // Retries must see the first request commit.
+	void testConcurrentIdempotentRetriesBookOnce() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Concurrent Retry Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 10, "Concurrent Retry Theater"));
+		Showtime showtime = showtimeRepository.save(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 4, 18, 0), LocalDateTime.of(2025, 6, 4, 20, 0), movie));
+		String bookingJson = String.format(
+				"{ \"showtimeId\": %d, \"seatNumber\": %d, \"userId\": \"%s\" }",
+				showtime.getId(), 2, "123e4567-e89b-12d3-a456-426614174000"
+		);
+
+		try {
+			// A client that times out and retries the same request over and over, all at once.
+			List<Future<String>> responses = new ArrayList<>();
+			try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+				for (int i = 0; i < 32; i++) {
+					responses.add(executor.submit(() -> mockMvc.perform(post("/bookings")
+									.header("Idempotency-Key", "concurrent-retry-key")
+									.contentType(MediaType.APPLICATION_JSON)
+									.content(bookingJson))
+							.andExpect(status().isOk())
+							.andReturn().getResponse().getContentAsString()));
+				}
+			}
+			Set<String> bookingIds = new HashSet<>();
+			for (Future<String> response : responses) {
+				bookingIds.add(objectMapper.readTree(response.get()).get("bookingId").asText());
+			}
+			assertEquals(1, bookingIds.size());
+			assertEquals(1, countBookings(showtime.getId()));
+		} finally {
+			jdbcTemplate.update("DELETE FROM booking_idempotency_keys WHERE idempotency_key LIKE '%:concurrent-retry-key'");
+			jdbcTemplate.update("DELETE FROM bookings WHERE showtime_id = ?", showtime.getId());
+			showtimeRepository.deleteById(showtime.getId());
+			theaterRepository.deleteById(theater.getId());
+			movieRepository.deleteById(movie.getId());
+		}
+	}
+
+
+	@Test
+	void testBookingAdmissionLimitsPerShowtime() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Premiere Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 50, "Premiere Theater"));
+		Showtime showtime = showtimeRepository.save(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 6, 18, 0), LocalDateTime.of(2025, 6, 6, 20, 0), movie));
+		String bot = "123e4567-e89b-12d3-a456-426614174000";
+		String fan = "84438967-f68f-4fa0-b620-0f08217e76af";
+
+		// Tighten the premiere: two quick requests per user, three for the whole showtime.
+		mockMvc.perform(put("/admin/admission/showtimes/" + showtime.getId())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{ \"userRate\": 0.01, \"userBurst\": 2, \"showtimeRate\": 0.01, \"showtimeBurst\": 3 }"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.user.burst", is(2)))
+				.andExpect(jsonPath("$.showtime.burst", is(3)));
+
+		String bookingJson = "{ \"showtimeId\": " + showtime.getId() + ", \"seatNumber\": %d, \"userId\": \"%s\" }";
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format(bookingJson, 1, bot)))
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format(bookingJson, 2, bot)))
+				.andExpect(status().isOk());
+
+		// The bot is over its own limit, and doesn't use up the showtime's.
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format(bookingJson, 3, bot)))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+				.andExpect(jsonPath("$.code", is("RATE_LIMITED")));
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format(bookingJson, 3, fan)))
+				.andExpect(status().isOk());
+
+		// The showtime's bucket is now empty for everyone.
+		mockMvc.perform(post("/bookings/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{ \"showtimeId\": " + showtime.getId() + ", \"seatNumbers\": [4], \"userId\": \"" + fan + "\" }"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+
+		// Back to the defaults, which are disabled in this configuration.
+		mockMvc.perform(delete("/admin/admission/showtimes/" + showtime.getId()))
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format(bookingJson, 4, bot)))
+				.andExpect(status().isOk());
+	}
+
+
+	@Test
+	void testWaitingRoomGatesBookings() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Blockbuster Movie", "Action", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 50, "Blockbuster Theater"));
+		Showtime showtime = showtimeRepository.save(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 7, 18, 0), LocalDateTime.of(2025, 6, 7, 20, 0), movie));
+		String user = "84438967-f68f-4fa0-b620-0f08217e76af";
+		String bookingJson = "{ \"showtimeId\": " + showtime.getId() + ", \"seatNumber\": 1, \"userId\": \"" + user + "\" }";
+
+		// Open the room so slowly that nobody is admitted during the first part of the test.
+		mockMvc.perform(put("/admin/waiting-room/showtimes/" + showtime.getId())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{ \"minRate\": 0.1, \"maxRate\": 0.1 }"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.open", is(true)));
+		try {
+			// No token, no booking.
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(bookingJson))
+					.andExpect(status().isForbidden())
+					.andExpect(jsonPath("$.code", is("QUEUE_TOKEN_REQUIRED")));
+
+			String joined = mockMvc.perform(post("/bookings/queue")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content("{ \"showtimeId\": " + showtime.getId() + ", \"userId\": \"" + user + "\" }"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.admitted", is(false)))
+					.andReturn().getResponse().getContentAsString();
+			String token = objectMapper.readTree(joined).get("token").asText();
+
+			// A place that is not admitted yet can't book or hold seats.
+			mockMvc.perform(post("/bookings")
+							.header("X-Queue-Token", token)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(bookingJson))
+					.andExpect(status().isTooManyRequests())
+					.andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+					.andExpect(jsonPath("$.code", is("QUEUED")));
+			mockMvc.perform(post("/bookings/holds")
+							.header("X-Queue-Token", token)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content("{ \"showtimeId\": " + showtime.getId() + ", \"seatNumbers\": [2], \"userId\": \"" + user + "\" }"))
+					.andExpect(status().isTooManyRequests());
+			mockMvc.perform(get("/bookings/queue").header("X-Queue-Token", "forged"))
+					.andExpect(status().isForbidden());
+
+			// Speed the room up and wait for the place to be admitted.
+			mockMvc.perform(put("/admin/waiting-room/showtimes/" + showtime.getId())
+							.contentType(MediaType.APPLICATION_JSON)
+							.content("{ \"minRate\": 100, \"maxRate\": 100 }"))
+					.andExpect(status().isOk());
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (!objectMapper.readTree(mockMvc.perform(get("/bookings/queue").header("X-Queue-Token", token))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString()).get("admitted").asBoolean()) {
+				assertTrue(System.nanoTime() < deadline, "Not admitted");
+				Thread.sleep(20);
+			}
+
+			mockMvc.perform(post("/bookings")
+							.header("X-Queue-Token", token)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(bookingJson))
+					.andExpect(status().isOk());
+			mockMvc.perform(get("/admin/waiting-room/showtimes/" + showtime.getId()))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.joined", is(1)))
+					.andExpect(jsonPath("$.admitted", is(1)));
+		} finally {
+			mockMvc.perform(delete("/admin/waiting-room/showtimes/" + showtime.getId()))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.open", is(false)));
+		}
+
+		// Closed again: bookings need no token.
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson.replace("\"seatNumber\": 1", "\"seatNumber\": 2")))
+				.andExpect(status().isOk());
+	}
+
+
+	@Test
+	void testTheaterCapacityChangeReachesBookingPath() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Capacity Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 50, "Capacity Theater"));
+		Showtime showtime = showtimeRepository.save(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 4, 18, 0), LocalDateTime.of(2025, 6, 4, 20, 0), movie));
+
+		String bookingJson = String.format(
+				"{ \"showtimeId\": %d, \"seatNumber\": %d, \"userId\": \"%s\" }",
+				showtime.getId(), 60, "123e4567-e89b-12d3-a456-426614174000"
+		);
+
+		// Seat 60 doesn't exist in a 50-seat theater. This also warms the showtime snapshot.
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson))
+				.andExpect(status().is5xxServerError())
+				.andExpect(content().string(containsString("out of range")));
+
+		// Grow the theater; the cached capacity must not linger.
+		mockMvc.perform(post("/theaters/update/" + theater.getId())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{ \"capacity\": 80, \"name\": \"Capacity Theater\" }"))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson))
+				.andExpect(status().isOk());
+
+		// Seat maps are sized by capacity, so it is capped by the API and by the schema.
+		mockMvc.perform(post("/theaters/update/" + theater.getId())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{ \"capacity\": " + Integer.MAX_VALUE + ", \"name\": \"Capacity Theater\" }"))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string(containsString("Capacity must be at most " + Theater.MAX_CAPACITY)));
+		assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+				"UPDATE theaters SET capacity = ? WHERE id = ?", Theater.MAX_CAPACITY + 1, theater.getId()));
+		assertThrows(IllegalArgumentException.class, () -> new SeatBitmap(Theater.MAX_CAPACITY + 1));
+	}
+
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // Each booking commits on its own, as in production.
+	void testBookingThroughputUnderHeavyConflict() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Contention Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 10_000, "Contention Theater"));
+		Showtime showtime = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 5, 18, 0), LocalDateTime.of(2025, 6, 5, 20, 0), movie));
+		try {
+			// One request in ten books a free seat; the other nine ask for a seat that is already taken.
+			int[] counts = new int[2];
+			int nextSeat = 1;
+			long started = 0;
+			for (int i = 0; i < 30_000; i++) {
+				if (i == 10_000) {
+					// The first third only warms up.
+					started = System.nanoTime();
+					counts = new int[2];
+				}
+				int seat = i % 10 == 0 ? nextSeat++ : 1 + i % (nextSeat - 1);
+				int statusCode = mockMvc.perform(post("/bookings")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content("{ \"showtimeId\": " + showtime.getId() + ", \"seatNumber\": " + seat
+										+ ", \"userId\": \"123e4567-e89b-12d3-a456-426614174000\" }"))
+						.andReturn().getResponse().getStatus();
+				assertTrue(statusCode == 200 || statusCode == 409, "status " + statusCode);
+				counts[statusCode == 200 ? 0 : 1]++;
+			}
+			long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			System.out.println("--- 20000 bookings at 90% conflicts in " + elapsedMillis + " ms ("
+					+ (20_000L * 1000 / elapsedMillis) + " requests/s)");
+
+			assertEquals(2_000, counts[0]);
+			assertEquals(18_000, counts[1]);
+		} finally {
+			jdbcTemplate.update("DELETE FROM bookings WHERE showtime_id = ?", showtime.getId());
+			showtimeRepository.deleteById(showtime.getId());
+			theaterRepository.deleteById(theater.getId());
+			movieRepository.deleteById(movie.getId());
+		}
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // Each booking commits on its own, as in production.
+	void testGroupBookingThroughputAgainstPerSeat() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Group Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 10_000, "Group Theater"));
+		Showtime perSeat = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 6, 14, 0), LocalDateTime.of(2025, 6, 6, 16, 0), movie));
+		Showtime grouped = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 6, 18, 0), LocalDateTime.of(2025, 6, 6, 20, 0), movie));
+		try {
+			// Groups of four seats, booked one request per seat on one showtime and one request per group on the
+			// other. The first 1,000 seats of each only warm up.
+			int groupSize = 4;
+			long perSeatNanos = 0;
+			long groupedNanos = 0;
+			for (int first = 1; first <= 4_000; first += groupSize) {
+				long started = System.nanoTime();
+				for (int seat = first; seat < first + groupSize; seat++) {
+					mockMvc.perform(post("/bookings")
+									.contentType(MediaType.APPLICATION_JSON)
+									.content("{ \"showtimeId\": " + perSeat.getId() + ", \"seatNumber\": " + seat
+											+ ", \"userId\": \"123e4567-e89b-12d3-a456-426614174000\" }"))
+							.andExpect(status().isOk());
+				}
+				long perSeatElapsed = System.nanoTime() - started;
+
+				started = System.nanoTime();
+				mockMvc.perform(post("/bookings/batch")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content("{ \"showtimeId\": " + grouped.getId() + ", \"seatNumbers\": [" + first + ", "
+										+ (first + 1) + ", " + (first + 2) + ", " + (first + 3)
+										+ "], \"userId\": \"123e4567-e89b-12d3-a456-426614174000\" }"))
+						.andExpect(status().isOk());
+				long groupedElapsed = System.nanoTime() - started;
+
+				if (first > 1_000) {
+					perSeatNanos += perSeatElapsed;
+					groupedNanos += groupedElapsed;
+				}
+			}
+			long seats = 3_000;
+			System.out.println("--- " + seats + " seats in groups of " + groupSize + ": per seat "
+					+ seats * TimeUnit.SECONDS.toNanos(1) / perSeatNanos + " seats/s, per group "
+					+ seats * TimeUnit.SECONDS.toNanos(1) / groupedNanos + " seats/s");
+
+			assertEquals(4_000, bookingRepository.findSeatNumbersByShowtimeId(perSeat.getId()).size());
+			assertEquals(4_000, bookingRepository.findSeatNumbersByShowtimeId(grouped.getId()).size());
+		} finally {
+			jdbcTemplate.update("DELETE FROM bookings WHERE showtime_id IN (?, ?)", perSeat.getId(), grouped.getId());
+			showtimeRepository.deleteById(perSeat.getId());
+			showtimeRepository.deleteById(grouped.getId());
+			theaterRepository.deleteById(theater.getId());
+			movieRepository.deleteById(movie.getId());
+		}
+	}
+
+
 	// ---------- Deletion Constraint Tests ----------
 
 	@Test
@@ -501,5 +1559,677 @@ public class PopcornPalaceApplicationTests {
 				.andExpect(content().string(containsString("it has bookings associated. Please delete the bookings")));
 	}
 
-}
 
+	// ---------- Seat Map Tests ----------
+
+	@Test
+	void testSeatBitmapSingleWinnerPerSeat() throws Exception {
+		SeatBitmap seats = new SeatBitmap(130);
+		AtomicInteger wins = new AtomicInteger();
+
+		// Eight threads race for every seat; each seat must be won exactly once.
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			executor.submit(() -> {
+				for (int seat = 1; seat <= 130; seat++) {
+					if (seats.tryClaim(seat)) {
+						wins.incrementAndGet();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(130, wins.get());
+		assertEquals(130, seats.countTaken());
+
+		// A released seat can be claimed again.
+		seats.release(65);
+		assertFalse(seats.isTaken(65));
+		assertTrue(seats.tryClaim(65));
+	}
+
+	@Test
+	void testSeatAvailabilityReflectsBookings() throws Exception {
+		Movie movie = new Movie(null, "Seat Map Movie", "Drama", 100, 7.5, 2025);
+		movie = movieRepository.save(movie);
+		Theater theater = new Theater(null, 12, "Seat Map Theater");
+		theater = theaterRepository.save(theater);
+
+		String showtimeJson = String.format(
+				"{ \"movieId\": %d, \"theater\": \"%s\", \"price\": 10.0, \"startTime\": \"%s\", \"endTime\": \"%s\" }",
+				movie.getId(),
+				theater.getName(),
+				LocalDateTime.of(2025, 5, 1, 18, 0).toString(),
+				LocalDateTime.of(2025, 5, 1, 20, 0).toString()
+		);
+		String showtimeResponse = mockMvc.perform(post("/showtimes")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(showtimeJson))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		Showtime showtime = objectMapper.readValue(showtimeResponse, Showtime.class);
+
+		// Nothing is booked yet.
+		mockMvc.perform(get("/showtimes/" + showtime.getId() + "/seats"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.capacity", is(12)))
+				.andExpect(jsonPath("$.available", is(12)));
+
+		// Book seats 1 and 10.
+		for (int seat : new int[]{1, 10}) {
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(String.format("{ \"showtimeId\": %d, \"seatNumber\": %d, \"userId\": \"%s\" }",
+									showtime.getId(), seat, "123e4567-e89b-12d3-a456-426614174000")))
+					.andExpect(status().isOk());
+		}
+
+		// The bitset marks exactly the booked seats.
+		String response = mockMvc.perform(get("/showtimes/" + showtime.getId() + "/seats"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.available", is(10)))
+				.andReturn().getResponse().getContentAsString();
+		String encoded = objectMapper.readTree(response).get("bookedSeats").asText();
+		BitSet booked = BitSet.valueOf(Base64.getDecoder().decode(encoded));
+		assertEquals(2, booked.cardinality());
+		assertTrue(booked.get(0));
+		assertTrue(booked.get(9));
+	}
+
+
+	// ---------- Content Negotiation Tests ----------
+
+	@Test
+	void testBinaryFormatsAreNegotiatedFromAccept() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Binary Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 80, "Binary Theater"));
+		Showtime showtime = showtimeRepository.saveAndFlush(new Showtime(null, theater, 12.5,
+				LocalDateTime.of(2025, 9, 1, 18, 0), LocalDateTime.of(2025, 9, 1, 20, 0), movie));
+		ObjectMapper cborMapper = cborConverter.getObjectMapper();
+		ObjectMapper smileMapper = smileConverter.getObjectMapper();
+
+		// JSON stays the default; CBOR and Smile carry the same fields, with dates in the same format.
+		byte[] json = mockMvc.perform(get("/showtimes/" + showtime.getId()))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse().getContentAsByteArray();
+		byte[] cbor = mockMvc.perform(get("/showtimes/" + showtime.getId()).accept(MediaType.APPLICATION_CBOR))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(objectMapper.readTree(json), cborMapper.readTree(cbor));
+		assertTrue(cbor.length < json.length);
+
+		byte[] seats = mockMvc.perform(get("/showtimes/" + showtime.getId() + "/seats").accept("application/x-jackson-smile"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(80, smileMapper.readTree(seats).get("available").asInt());
+
+		// Request bodies can be binary too.
+		byte[] booking = cborMapper.writeValueAsBytes(Map.of(
+				"showtimeId", showtime.getId(), "seatNumber", 7, "userId", UUID.randomUUID().toString()));
+		byte[] response = mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_CBOR)
+						.accept(MediaType.APPLICATION_CBOR)
+						.content(booking))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		assertNotNull(cborMapper.readTree(response).get("bookingId"));
+
+		// Bytes on the wire and encode/decode time for a page of 1,000 showtimes.
+		List<Showtime> page = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			page.add(new Showtime((long) i, theater, 10.0 + i % 7, LocalDateTime.of(2025, 9, 1, 10, 0).plusMinutes(i),
+					LocalDateTime.of(2025, 9, 1, 12, 0).plusMinutes(i), movie));
+		}
+		for (ObjectMapper mapper : List.of(objectMapper, cborMapper, smileMapper)) {
+			byte[] encoded = mapper.writeValueAsBytes(page);
+			long encodeNanos = Long.MAX_VALUE;
+			long decodeNanos = Long.MAX_VALUE;
+			for (int round = 0; round < 50; round++) {
+				long started = System.nanoTime();
+				mapper.writeValueAsBytes(page);
+				encodeNanos = Math.min(encodeNanos, System.nanoTime() - started);
+				started = System.nanoTime();
+				mapper.readValue(encoded, Showtime[].class);
+				decodeNanos = Math.min(decodeNanos, System.nanoTime() - started);
+			}
+			System.out.println("--- " + mapper.getFactory().getFormatName() + ": " + encoded.length + " bytes, encode "
+					+ TimeUnit.NANOSECONDS.toMicros(encodeNanos) + " us, decode "
+					+ TimeUnit.NANOSECONDS.toMicros(decodeNanos) + " us");
+			assertEquals(1_000, mapper.readValue(encoded, Showtime[].class).length);
+		}
+	}
+
+
+	// ---------- Booking Journal Tests ----------
+
+	@Test
+	void testBookingJournalSurvivesCrashAndRestart(@TempDir Path journalDirectory) throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Journal Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 50, "Journal Theater"));
+		Showtime showtime = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 7, 1, 18, 0), LocalDateTime.of(2025, 7, 1, 20, 0), movie));
+
+		// Journal 40 bookings across three small segments. Each append returns once its group fsync is done.
+		BookingJournalService beforeCrash = openJournal(journalDirectory);
+		List<UUID> bookingIds = new ArrayList<>();
+		for (int seat = 1; seat <= 40; seat++) {
+			Booking booking = new Booking(TimeOrderedUuid.next(), seat, UUID.randomUUID(), showtime);
+			beforeCrash.append(booking);
+			bookingIds.add(booking.getBookingId());
+		}
+		assertEquals(40, beforeCrash.getPendingCount());
+
+		// Crash: the instance is abandoned without draining, and a half-written record is left at the tail.
+		Path lastSegment;
+		try (var files = Files.list(journalDirectory)) {
+			lastSegment = files.filter(path -> path.getFileName().toString().startsWith("segment-")).max(Path::compareTo).orElseThrow();
+		}
+		try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 0, 0, 0, 41, 7, 7, 7}), 8L * (8 + BOOKING_RECORD_PAYLOAD + 4));
+		}
+		assertEquals(0, countBookings(showtime.getId()));
+
+		// Restart: replay writes exactly the acknowledged bookings and checkpoints the journal.
+		BookingJournalService afterCrash = openJournal(journalDirectory);
+		afterCrash.replay();
+		assertEquals(40, countBookings(showtime.getId()));
+		assertEquals(bookingIds, jdbcTemplate.queryForList(
+				"SELECT booking_id FROM bookings WHERE showtime_id = ? ORDER BY seat_number", UUID.class, showtime.getId()));
+		assertEquals(0, afterCrash.getPendingCount());
+		assertEquals(0, afterCrash.getDeadLetteredCount());
+
+		// A second restart has nothing left to replay.
+		BookingJournalService secondRestart = openJournal(journalDirectory);
+		secondRestart.replay();
+		assertEquals(40, countBookings(showtime.getId()));
+		afterCrash.shutdown();
+		secondRestart.shutdown();
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // Drain batches commit on their own, as in production.
+	void testBookingJournalKeepsBookingsThroughOutageAndDeadLettersTheUnwritable(@TempDir Path journalDirectory)
+			throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Outage Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 50, "Outage Theater"));
+		Showtime showtime = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 7, 2, 18, 0), LocalDateTime.of(2025, 7, 2, 20, 0), movie));
+		Showtime deletedShowtime = new Showtime();
+		deletedShowtime.setId(Long.MAX_VALUE);
+
+		// A repository whose database can be taken down.
+		AtomicBoolean databaseDown = new AtomicBoolean(true);
+		BookingBatchRepository flakyRepository = new BookingBatchRepository(jdbcTemplate) {
+			@Override
+			public boolean[] insertAllIgnoringConflicts(List<Booking> bookings) {
+				if (databaseDown.get()) {
+					throw new CannotGetJdbcConnectionException("Database is down");
+				}
+				return super.insertAllIgnoringConflicts(bookings);
+			}
+		};
+		BookingJournalService journal = new BookingJournalService(true, journalDirectory, 16, 200, 60_000, 1_000, 5_000,
+				flakyRepository, transactionManager);
+		try {
+			for (int seat = 1; seat <= 5; seat++) {
+				journal.append(new Booking(TimeOrderedUuid.next(), seat, UUID.randomUUID(), showtime));
+			}
+			// Two bookings that can never be written: one whose showtime is gone, one whose seat is taken.
+			Booking orphan = new Booking(TimeOrderedUuid.next(), 1, UUID.randomUUID(), deletedShowtime);
+			Booking duplicate = new Booking(TimeOrderedUuid.next(), 3, UUID.randomUUID(), showtime);
+			journal.append(orphan);
+			journal.append(duplicate);
+
+			// The outage keeps everything pending instead of dropping it.
+			journal.drainAll();
+			journal.drainAll();
+			assertEquals(7, journal.getPendingCount());
+			assertEquals(0, countBookings(showtime.getId()));
+
+			// Once the database is back, the writable bookings are written and the rest are dead-lettered.
+			databaseDown.set(false);
+			journal.drainAll();
+			assertEquals(0, journal.getPendingCount());
+			assertEquals(5, countBookings(showtime.getId()));
+			assertEquals(2, journal.getDeadLetteredCount());
+			assertEquals(List.of(orphan.getBookingId(), duplicate.getBookingId()).stream().sorted().toList(),
+					jdbcTemplate.queryForList("SELECT booking_id FROM booking_dead_letters ORDER BY booking_id", UUID.class)
+							.stream().sorted().toList());
+		} finally {
+			journal.shutdown();
+			jdbcTemplate.update("DELETE FROM booking_dead_letters");
+			jdbcTemplate.update("DELETE FROM bookings WHERE showtime_id = ?", showtime.getId());
+			showtimeRepository.deleteById(showtime.getId());
+			theaterRepository.deleteById(theater.getId());
+			movieRepository.deleteById(movie.getId());
+		}
+	}
+
+	@Test
+	void testSeatMapCountsJournaledBookingsNotYetInDatabase(@TempDir Path journalDirectory) throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Pending Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 50, "Pending Theater"));
+		Showtime showtime = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 7, 3, 18, 0), LocalDateTime.of(2025, 7, 3, 20, 0), movie));
+		jdbcTemplate.update("INSERT INTO bookings (booking_id, seat_number, user_id, showtime_id) VALUES (?, 1, ?, ?)",
+				TimeOrderedUuid.next(), UUID.randomUUID(), showtime.getId());
+
+		BookingJournalService journal = openJournal(journalDirectory);
+		try {
+			journal.append(new Booking(TimeOrderedUuid.next(), 7, UUID.randomUUID(), showtime));
+
+			// A seat map loaded (or reloaded) while seat 7 is only in the journal must not sell it again.
+			SeatBitmap seats = new SeatOccupancyService(bookingRepository, journal).getSeats(showtime.getId(), 50);
+			assertTrue(seats.isTaken(1));
+			assertTrue(seats.isTaken(7));
+			assertEquals(2, seats.countTaken());
+		} finally {
+			journal.shutdown();
+		}
+	}
+
+	// Opens a journal with small segments; its drainer isn't started, so draining only happens on replay.
+	private BookingJournalService openJournal(Path directory) {
+		return new BookingJournalService(true, directory, 16, 200, 60_000, 1_000, 5_000,
+				bookingBatchRepository, transactionManager);
+	}
+
+	private int countBookings(Long showtimeId) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings WHERE showtime_id = ?", Integer.class, showtimeId);
+	}
+
+
+	// ---------- Booking Coalescer Tests ----------
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // The coalescer commits on its own thread.
+	void testBookingCoalescerSharesTransactionsAndResolvesConflicts() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Coalescer Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 20_000, "Coalescer Theater"));
+		Showtime showtime = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 8, 1, 18, 0), LocalDateTime.of(2025, 8, 1, 20, 0), movie));
+		BookingCoalescer coalescer = new BookingCoalescer(true, 1_000, 256, bookingBatchRepository, transactionManager);
+		try {
+			// Ten seats, with seats 1 and 2 requested twice in the same burst: one booking per seat wins.
+			List<CompletableFuture<Booking>> results = new ArrayList<>();
+			for (int seat : new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 1, 2}) {
+				results.add(coalescer.submit(new Booking(TimeOrderedUuid.next(), seat, UUID.randomUUID(), showtime)));
+			}
+			int booked = 0;
+			for (CompletableFuture<Booking> result : results) {
+				try {
+					result.join();
+					booked++;
+				} catch (CompletionException ex) {
+					assertTrue(ex.getCause() instanceof SeatTakenException);
+				}
+			}
+			assertEquals(10, booked);
+			assertEquals(10, countBookings(showtime.getId()));
+
+			// A showtime deleted after it was looked up is not a seat conflict.
+			Showtime deletedShowtime = new Showtime();
+			deletedShowtime.setId(Long.MAX_VALUE);
+			CompletionException orphaned = assertThrows(CompletionException.class, () -> coalescer.submit(
+					new Booking(TimeOrderedUuid.next(), 1, UUID.randomUUID(), deletedShowtime)).join());
+			assertTrue(orphaned.getCause() instanceof ResourceNotFoundException, orphaned.getCause().toString());
+
+			// Open-loop load at increasing rates; latency is measured from each request's scheduled send time.
+			int nextSeat = 11;
+			for (int rate : new int[]{1_000, 5_000, 20_000}) {
+				int requests = rate / 2;
+				long batchesBefore = coalescer.getBatchCount();
+				long[] latencies = offerBookings(coalescer, showtime, rate, requests, nextSeat);
+				long batches = coalescer.getBatchCount() - batchesBefore;
+				nextSeat += requests;
+
+				Arrays.sort(latencies);
+				System.out.println("--- " + rate + " req/s: " + requests + " bookings in " + batches + " batches, p50 "
+						+ TimeUnit.NANOSECONDS.toMicros(latencies[requests / 2]) + " us, p99 "
+						+ TimeUnit.NANOSECONDS.toMicros(latencies[requests * 99 / 100]) + " us, max "
+						+ TimeUnit.NANOSECONDS.toMicros(latencies[requests - 1]) + " us");
+				assertTrue(batches < requests);
+			}
+			assertEquals(nextSeat - 1, countBookings(showtime.getId()));
+		} finally {
+			coalescer.shutdown();
+			jdbcTemplate.update("DELETE FROM bookings WHERE showtime_id = ?", showtime.getId());
+			showtimeRepository.deleteById(showtime.getId());
+			theaterRepository.deleteById(theater.getId());
+			movieRepository.deleteById(movie.getId());
+		}
+	}
+
+	// Submits bookings for consecutive seats at a fixed rate and returns each one's latency in nanoseconds.
+	private long[] offerBookings(BookingCoalescer coalescer, Showtime showtime, int ratePerSecond, int requests,
+								 int firstSeat) {
+		long[] latencies = new long[requests];
+		CompletableFuture<?>[] results = new CompletableFuture<?>[requests];
+		long interval = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+		long started = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			long scheduled = started + i * interval;
+			// Park instead of spinning so the generator doesn't take the writer's CPU; late requests catch up.
+			for (long now = System.nanoTime(); now < scheduled; now = System.nanoTime()) {
+				LockSupport.parkNanos(scheduled - now);
+			}
+			int request = i;
+			results[i] = coalescer.submit(new Booking(TimeOrderedUuid.next(), firstSeat + i, UUID.randomUUID(), showtime))
+					.thenRun(() -> latencies[request] = System.nanoTime() - scheduled);
+		}
+		CompletableFuture.allOf(results).join();
+		return latencies;
+	}
+
+
+	// ---------- Seat Stream Tests ----------
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // Seat changes are published after commit.
+	void testSeatStreamSendsSnapshotThenCommittedBookings() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Stream Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 50, "Stream Theater"));
+		Showtime showtime = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 9, 1, 18, 0), LocalDateTime.of(2025, 9, 1, 20, 0), movie));
+		try {
+			mockMvc.perform(get("/showtimes/9999/seats/stream"))
+					.andExpect(status().isNotFound());
+
+			// A held seat is taken in the seat map, but the stream starts from bookings only: it never announces the
+			// hold, so it would have no way to take the seat back when the hold is released.
+			SeatHoldService.SeatHold hold = seatHoldService.holdSeats(showtime.getId(), List.of(10), UUID.randomUUID());
+			mockMvc.perform(get("/showtimes/" + showtime.getId() + "/seats"))
+					.andExpect(jsonPath("$.available", is(49)));
+			MvcResult stream = mockMvc.perform(get("/showtimes/" + showtime.getId() + "/seats/stream"))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			awaitContent(stream, "\"available\":50");
+			assertTrue(stream.getResponse().getContentAsString().startsWith("event:snapshot"));
+			seatHoldService.releaseHold(hold.holdId());
+
+			// A single booking, then three seats committed together; bookings close together share a frame.
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(String.format("{ \"showtimeId\": %d, \"seatNumber\": 1, \"userId\": \"%s\" }",
+									showtime.getId(), UUID.randomUUID())))
+					.andExpect(status().isOk());
+			mockMvc.perform(post("/bookings/batch")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(String.format("{ \"showtimeId\": %d, \"seatNumbers\": [4, 2, 3], \"userId\": \"%s\" }",
+									showtime.getId(), UUID.randomUUID())))
+					.andExpect(status().isOk());
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (announcedSeats(stream).size() < 4) {
+				assertTrue(System.nanoTime() < deadline, "Announced only " + announcedSeats(stream));
+				Thread.sleep(10);
+			}
+			assertEquals(List.of(1, 2, 3, 4), announcedSeats(stream).stream().sorted().toList());
+			assertEquals(1, stream.getResponse().getContentAsString().split("event:snapshot", -1).length - 1);
+		} finally {
+			seatStreamService.closeShowtime(showtime.getId());
+			jdbcTemplate.update("DELETE FROM bookings WHERE showtime_id = ?", showtime.getId());
+			showtimeRepository.deleteById(showtime.getId());
+			theaterRepository.deleteById(theater.getId());
+			movieRepository.deleteById(movie.getId());
+		}
+	}
+
+	@Test
+	void testSeatStreamFansOutOneFrameAndDropsSlowSubscribers() throws Exception {
+		// Flushed by hand instead of on a timer, with room for four frames per subscriber.
+		SeatStreamService streams = new SeatStreamService(objectMapper, TimeUnit.HOURS.toMillis(1), 4, 60_000);
+		int subscribers = 2_000;
+		try {
+			AtomicLong received = new AtomicLong();
+			for (int i = 0; i < subscribers; i++) {
+				streams.subscribe(1L, new SseEmitter() {
+					@Override
+					public void send(Set<DataWithMediaType> items) {
+						received.incrementAndGet();
+					}
+				}, () -> Map.of("available", 1_000));
+			}
+			// One client that stops reading after its snapshot.
+			CountDownLatch stalled = new CountDownLatch(1);
+			streams.subscribe(1L, new SseEmitter() {
+				@Override
+				public void send(Set<DataWithMediaType> items) throws IOException {
+					try {
+						stalled.await();
+					} catch (InterruptedException ex) {
+						throw new IOException(ex);
+					}
+				}
+			}, () -> Map.of("available", 1_000));
+			awaitCount(received, subscribers);
+
+			// A burst of 1,000 bookings only marks seats; one flush turns it into one frame for everyone.
+			long started = System.nanoTime();
+			for (int seat = 1; seat <= 1_000; seat++) {
+				streams.publishSeatsTaken(1L, List.of(seat));
+			}
+			long publishNanos = System.nanoTime() - started;
+			started = System.nanoTime();
+			streams.flush();
+			long flushMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+			awaitCount(received, 2L * subscribers);
+			long deliveredMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+			assertEquals(1, streams.getFramesPublished());
+
+			// The stalled client falls a full buffer behind and is dropped; nobody else is affected.
+			for (int seat = 1_001; seat <= 1_004; seat++) {
+				streams.publishSeatsTaken(1L, List.of(seat));
+				streams.flush();
+			}
+			assertEquals(1, streams.getDroppedSubscribers());
+			assertEquals(subscribers, streams.getSubscriberCount(1L));
+			awaitCount(received, 6L * subscribers);
+			stalled.countDown();
+
+			System.out.println("--- seat stream: 1000 seats published at " + publishNanos / 1_000
+					+ " ns each, one frame queued for " + subscribers + " subscribers in "
+					+ flushMicros + " us, delivered to all in " + deliveredMicros + " us");
+		} finally {
+			streams.shutdown();
+		}
+	}
+
+	// Seat numbers of all seats-taken events the stream has sent so far, in order.
+	private List<Integer> announcedSeats(MvcResult stream) throws Exception {
+		// Only events already terminated by a blank line; the last one may still be being written.
+		String content = stream.getResponse().getContentAsString();
+		List<Integer> seats = new ArrayList<>();
+		for (String event : content.substring(0, Math.max(0, content.lastIndexOf("\n\n"))).split("\n\n")) {
+			if (event.contains("event:seats-taken")) {
+				objectMapper.readTree(event.substring(event.indexOf("data:") + 5)).get("seats")
+						.forEach(seat -> seats.add(seat.asInt()));
+			}
+		}
+		return seats;
+	}
+
+	private static void awaitContent(MvcResult result, String expected) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!result.getResponse().getContentAsString().contains(expected)) {
+			assertTrue(System.nanoTime() < deadline, "Stream never sent " + expected + ": "
+					+ result.getResponse().getContentAsString());
+			Thread.sleep(10);
+		}
+	}
+
+	private static void awaitCount(AtomicLong count, long expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (count.get() < expected) {
+			assertTrue(System.nanoTime() < deadline, "Only " + count.get() + " of " + expected + " frames sent");
+			Thread.sleep(10);
+		}
+		assertEquals(expected, count.get());
+	}
+
+
+	// ---------- Seat Hold Tests ----------
+
+	@Test
+	void testHoldBlocksBookingUntilReleased() throws Exception {
+		Movie movie = new Movie(null, "Hold Movie", "Drama", 100, 7.5, 2025);
+		movie = movieRepository.save(movie);
+		Theater theater = new Theater(null, 30, "Hold Theater");
+		theater = theaterRepository.save(theater);
+
+		String showtimeJson = String.format(
+				"{ \"movieId\": %d, \"theater\": \"%s\", \"price\": 10.0, \"startTime\": \"%s\", \"endTime\": \"%s\" }",
+				movie.getId(),
+				theater.getName(),
+				LocalDateTime.of(2025, 6, 1, 18, 0).toString(),
+				LocalDateTime.of(2025, 6, 1, 20, 0).toString()
+		);
+		String showtimeResponse = mockMvc.perform(post("/showtimes")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(showtimeJson))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		Showtime showtime = objectMapper.readValue(showtimeResponse, Showtime.class);
+
+		// Hold seats 7 and 8.
+		String holdJson = String.format(
+				"{ \"showtimeId\": %d, \"seatNumbers\": [7, 8], \"userId\": \"%s\" }",
+				showtime.getId(), "123e4567-e89b-12d3-a456-426614174000"
+		);
+		String holdResponse = mockMvc.perform(post("/bookings/holds")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(holdJson))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		String holdId = objectMapper.readTree(holdResponse).get("holdId").asText();
+
+		// A held seat can't be booked by someone else.
+		String bookingJson = String.format(
+				"{ \"showtimeId\": %d, \"seatNumber\": %d, \"userId\": \"%s\" }",
+				showtime.getId(), 7, "123e4567-e89b-12d3-a456-426614174001"
+		);
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code", is("SEAT_TAKEN")))
+				.andExpect(jsonPath("$.message", containsString("already booked")));
+
+		// Once released, the seat can be booked.
+		mockMvc.perform(delete("/bookings/holds/" + holdId))
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(bookingJson))
+				.andExpect(status().isOk());
+
+		// A confirmed hold becomes bookings and can't be confirmed twice.
+		String secondHold = mockMvc.perform(post("/bookings/holds")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(holdJson.replace("[7, 8]", "[9, 10]")))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		String secondHoldId = objectMapper.readTree(secondHold).get("holdId").asText();
+		mockMvc.perform(post("/bookings/holds/" + secondHoldId + "/confirm"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.bookingIds", hasSize(2)));
+		mockMvc.perform(post("/bookings/holds/" + secondHoldId + "/confirm"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void testExpiredHoldsReturnSeats() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Expiry Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 10, "Expiry Theater"));
+		Showtime showtime = showtimeRepository.save(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 2, 18, 0), LocalDateTime.of(2025, 6, 2, 20, 0), movie));
+
+		SeatHoldService.SeatHold hold = seatHoldService.holdSeats(showtime.getId(), List.of(1, 2, 3),
+				UUID.randomUUID());
+		assertTrue(seatOccupancyService.findSeats(showtime.getId()).isTaken(2));
+
+		// Nothing expires before the deadline; everything is released once it has passed.
+		assertEquals(0, seatHoldService.expireHolds(hold.expiresAt().toEpochMilli() - 1_000));
+		assertEquals(1, seatHoldService.expireHolds(hold.expiresAt().toEpochMilli() + 1_000));
+		assertEquals(0, seatOccupancyService.findSeats(showtime.getId()).countTaken());
+	}
+
+	@Test
+	void testHeldSeatsSurviveSeatMapReload() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Reload Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 10, "Reload Theater"));
+		Showtime showtime = showtimeRepository.save(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2025, 6, 5, 18, 0), LocalDateTime.of(2025, 6, 5, 20, 0), movie));
+		SeatHoldService.SeatHold hold = seatHoldService.holdSeats(showtime.getId(), List.of(4, 5),
+				UUID.randomUUID());
+
+		// A theater move or capacity change drops the seat map; the reloaded one still has the held seats.
+		seatOccupancyService.evict(showtime.getId());
+		SeatBitmap reloaded = seatOccupancyService.getSeats(showtime.getId(), 20);
+		assertTrue(reloaded.isTaken(4));
+		assertTrue(reloaded.isTaken(5));
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format("{ \"showtimeId\": %d, \"seatNumber\": 4, \"userId\": \"%s\" }",
+								showtime.getId(), UUID.randomUUID())))
+				.andExpect(status().isConflict());
+
+		// Releasing the hold frees the seats in the map in use now, not in the one they were claimed on.
+		seatHoldService.releaseHold(hold.holdId());
+		assertEquals(0, seatOccupancyService.findSeats(showtime.getId()).countTaken());
+	}
+
+
+	// ---------- Archive Tests ----------
+
+	@Test
+	void testArchiveMovesEndedShowtimesInChunks() throws Exception {
+		Movie movie = movieRepository.save(new Movie(null, "Archive Movie", "Drama", 100, 7.5, 2025));
+		Theater theater = theaterRepository.save(new Theater(null, 10, "Archive Theater"));
+		List<Showtime> ended = new ArrayList<>();
+		for (int day = 1; day <= 3; day++) {
+			ended.add(showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+					LocalDateTime.of(2024, 1, day, 18, 0), LocalDateTime.of(2024, 1, day, 20, 0), movie)));
+		}
+		Showtime upcoming = showtimeRepository.saveAndFlush(new Showtime(null, theater, 10.0,
+				LocalDateTime.of(2030, 1, 1, 18, 0), LocalDateTime.of(2030, 1, 1, 20, 0), movie));
+
+		// Two bookings on each ended showtime and one on the upcoming one.
+		for (Showtime showtime : ended) {
+			mockMvc.perform(post("/bookings/batch")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(String.format("{ \"showtimeId\": %d, \"seatNumbers\": [1, 2], \"userId\": \"%s\" }",
+									showtime.getId(), UUID.randomUUID())))
+					.andExpect(status().isOk());
+		}
+		mockMvc.perform(post("/bookings")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(String.format("{ \"showtimeId\": %d, \"seatNumber\": 1, \"userId\": \"%s\" }",
+								upcoming.getId(), UUID.randomUUID())))
+				.andExpect(status().isOk());
+
+		// Chunks of two showtimes: one full chunk, one partial chunk.
+		ShowtimeArchiveService.ArchiveProgress progress = showtimeArchiveService.archiveShowtimesEndedBefore(
+				LocalDateTime.of(2025, 1, 1, 0, 0), 2, 0);
+		assertEquals("COMPLETED", progress.state());
+		assertEquals(2, progress.chunks());
+		assertEquals(3, progress.showtimesArchived());
+		assertEquals(6, progress.bookingsArchived());
+
+		// Only the upcoming showtime and its booking are left in the live tables.
+		assertEquals(List.of(upcoming.getId()), jdbcTemplate.queryForList("SELECT id FROM showtimes", Long.class));
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings", Integer.class));
+		assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM showtimes_archive", Integer.class));
+		assertEquals(6, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings_archive", Integer.class));
+
+		// The deletion check now only reports the upcoming showtime.
+		mockMvc.perform(delete("/movies/" + movie.getTitle()))
+				.andExpect(status().is5xxServerError())
+				.andExpect(content().string(containsString("showtimes with IDs: " + upcoming.getId())));
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.att.tdp.popcorn_palace.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two in-memory H2 databases stand in for the primary and the replica; each knows its own name.
+public class ReadWriteRoutingDataSourceTests {
+
+	private ReadWriteRoutingDataSource routing;
+	private SwitchableDataSource replica;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate readOnly;
+	private TransactionTemplate readWrite;
+
+	@BeforeEach
+	void setup() {
+		DataSource primary = database("primary");
+		replica = new SwitchableDataSource(database("replica"));
+		routing = new ReadWriteRoutingDataSource(primary, replica);
+
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		readWrite = new TransactionTemplate(transactionManager);
+		readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		routing.close();
+	}
+
+	@Test
+	void testReadOnlyTransactionsUseReplica() {
+		assertEquals("replica", readOnly.execute(status -> currentNode()));
+		assertEquals("primary", readWrite.execute(status -> currentNode()));
+
+		// Without a transaction there is no read-only flag, so the primary is used.
+		assertEquals("primary", currentNode());
+	}
+
+	@Test
+	void testReadYourWritesUsesPrimary() throws Exception {
+		assertEquals("primary", ReadWriteRoutingDataSource.onPrimary(() -> readOnly.execute(status -> currentNode())));
+
+		// The override ends with the block.
+		assertEquals("replica", readOnly.execute(status -> currentNode()));
+	}
+
+	@Test
+	void testFallsBackToPrimaryWhileReplicaIsDown() {
+		replica.setAvailable(false);
+		assertEquals("primary", readOnly.execute(status -> currentNode()));
+		assertFalse(routing.isReplicaHealthy());
+		assertFalse(routing.checkReplicaHealth());
+
+		// Once a health check succeeds, reads go back to the replica.
+		replica.setAvailable(true);
+		assertTrue(routing.checkReplicaHealth());
+		assertEquals("replica", readOnly.execute(status -> currentNode()));
+	}
+
+	private String currentNode() {
+		return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(20))");
+		jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+		return dataSource;
+	}
+
+	// A data source that can be switched off to simulate an unreachable replica.
+	private static class SwitchableDataSource extends DelegatingDataSource {
+
+		private volatile boolean available = true;
+
+		SwitchableDataSource(DataSource target) {
+			super(target);
+		}
+
+		void setAvailable(boolean available) {
+			this.available = available;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (!available) {
+				throw new SQLException("Replica is down");
+			}
+			return super.getConnection();
+		}
+	}
+}
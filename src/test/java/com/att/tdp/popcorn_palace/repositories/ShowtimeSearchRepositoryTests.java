@@ -0,0 +1,120 @@
+package com.att.tdp.popcorn_palace.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Searches a million showtimes in a dedicated H2 database, migrated with the application's own migrations.
+public class ShowtimeSearchRepositoryTests {
+
+	private static final int SHOWTIMES = 1_000_000;
+	private static final int THEATERS = 100;
+	private static final int MOVIES = 1_000;
+	private static final LocalDateTime FIRST_START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+	private static SingleConnectionDataSource dataSource;
+	private static JdbcTemplate jdbcTemplate;
+	private static NamedParameterJdbcTemplate namedJdbcTemplate;
+	private static ShowtimeSearchRepository repository;
+
+	@BeforeAll
+	static void setup() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:showtime-search;MODE=PostgreSQL", "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+		repository = new ShowtimeSearchRepository(namedJdbcTemplate);
+
+		// Load into the baseline schema and let the later migrations build their indexes over the full table.
+		Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").target("1").load().migrate();
+
+		// Showtime x plays in theater x % 100 and is movie x % 1000. Each theater gets one two-hour showtime
+		// every three hours, so consecutive ids of a theater never overlap.
+		long started = System.nanoTime();
+		jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+		jdbcTemplate.update("INSERT INTO theaters (id, capacity, name) SELECT X, 100, 'Theater ' || X FROM SYSTEM_RANGE(1, " + THEATERS + ")");
+		jdbcTemplate.update("INSERT INTO movies (id, title, genre, duration, rating, release_year) " +
+				"SELECT X, 'Movie ' || X, 'Drama', 120, 7.0, 2025 FROM SYSTEM_RANGE(1, " + MOVIES + ")");
+		jdbcTemplate.update("INSERT INTO showtimes (id, theater_id, movie_id, price, start_time, end_time) " +
+				"SELECT X, MOD(X, " + THEATERS + ") + 1, MOD(X, " + MOVIES + ") + 1, 10.0, " +
+				"DATEADD('HOUR', (X / " + THEATERS + ") * 3, TIMESTAMP '" + FIRST_START + "'), " +
+				"DATEADD('HOUR', (X / " + THEATERS + ") * 3 + 2, TIMESTAMP '" + FIRST_START + "') " +
+				"FROM SYSTEM_RANGE(1, " + SHOWTIMES + ")");
+		Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").load().migrate();
+		jdbcTemplate.execute("ANALYZE");
+		System.out.println("--- loaded and indexed " + SHOWTIMES + " showtimes in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+	}
+
+	@AfterAll
+	static void tearDown() {
+		dataSource.destroy();
+	}
+
+	@Test
+	void testEverySearchShapeUsesItsIndex() {
+		LocalDateTime from = FIRST_START.plusDays(300);
+		LocalDateTime to = from.plusDays(7);
+		String movie = plan(ShowtimeSearchRepository.query(7L, null, from, null, null, null, 100));
+		assertTrue(movie.contains("IDX_SHOWTIMES_MOVIE_TIME: MOVIE_ID = ?1"), movie);
+		String moviePage = plan(ShowtimeSearchRepository.query(7L, null, from, null, from.plusDays(1), 5L, 100));
+		assertTrue(moviePage.contains("IDX_SHOWTIMES_MOVIE_TIME: MOVIE_ID = ?1"), moviePage);
+		String theater = plan(ShowtimeSearchRepository.query(null, 7L, from, to, null, null, 100));
+		assertTrue(theater.contains("IDX_SHOWTIMES_THEATER_TIME_ID") && theater.contains("THEATER_ID = ?1"), theater);
+
+		// Without an equality filter H2 also reads the index in (start_time, id) order and stops after one page.
+		// (It can't do that after an equality column; PostgreSQL can, for all three indexes.)
+		String range = plan(ShowtimeSearchRepository.query(null, null, from, to, null, null, 100));
+		assertTrue(range.contains("IDX_SHOWTIMES_START_TIME") && range.contains("index sorted"), range);
+		String keyset = plan(ShowtimeSearchRepository.query(null, null, null, null, from, 5L, 100));
+		assertTrue(keyset.contains("IDX_SHOWTIMES_START_TIME") && keyset.contains("index sorted"), keyset);
+	}
+
+	@Test
+	void testKeysetPagesAreContiguousAndFast() {
+		// Walk eight pages of one movie's showtimes (there are 1,000 in all); a page costs the same wherever it starts.
+		LocalDateTime from = FIRST_START.plusDays(100);
+		List<ShowtimeListing> page = repository.search(7L, null, from, null, null, null, 100);
+		long started = System.nanoTime();
+		int rows = 0;
+		for (int i = 0; i < 8; i++) {
+			assertEquals(100, page.size());
+			for (int j = 1; j < page.size(); j++) {
+				assertTrue(page.get(j - 1).startTime().isBefore(page.get(j).startTime()));
+			}
+			rows += page.size();
+			ShowtimeListing last = page.get(page.size() - 1);
+			List<ShowtimeListing> next = repository.search(7L, null, from, null, last.startTime(), last.id(), 100);
+			assertTrue(next.get(0).startTime().isAfter(last.startTime()));
+			assertEquals(last.id() + MOVIES, next.get(0).id());
+			page = next;
+		}
+		long perPageMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started) / 8;
+
+		// Theater and time range: one week of theater 8 is 56 showtimes.
+		LocalDateTime weekStart = FIRST_START.plusDays(1_000);
+		started = System.nanoTime();
+		List<ShowtimeListing> week = repository.search(null, 8L, weekStart, weekStart.plusDays(7), null, null, 100);
+		long theaterMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+		assertEquals(56, week.size());
+		assertTrue(week.stream().allMatch(showtime -> showtime.theaterId() == 8L));
+
+		System.out.println("--- " + SHOWTIMES + " showtimes: " + rows + " rows by movie in " + perPageMicros
+				+ " us per page of 100, one theater-week in " + theaterMicros + " us");
+	}
+
+	// EXPLAIN the statement the repository runs for a search, with its parameters bound.
+	private static String plan(ShowtimeSearchRepository.Query query) {
+		return namedJdbcTemplate.queryForObject("EXPLAIN " + query.sql(), query.params(), String.class);
+	}
+}
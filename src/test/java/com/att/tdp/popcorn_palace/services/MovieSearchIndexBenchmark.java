@@ -0,0 +1,75 @@
+package com.att.tdp.popcorn_palace.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type-ahead latency over the half a million titles of {@link MovieSearchIndexTests}: 2,000 titles typed
+ * keystroke by keystroke, and 2,000 more searched for with a typo in them. Sampled, so the report has p50 and p99.
+ * <p>
+ * Not run by the build. After {@code mvn test-compile}, run {@link #main} with the test classpath, e.g. from the
+ * IDE, or {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main MovieSearchIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class MovieSearchIndexBenchmark {
+
+	private MovieSearchIndex index;
+	private String[] queries;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		List<String> titles = MovieSearchIndexTests.generateTitles(random);
+		index = new MovieSearchIndex(null, null);
+		MovieSearchIndexTests.fill(index, titles, random);
+
+		random = new Random(11);
+		List<String> typed = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			String title = titles.get(random.nextInt(titles.size()));
+			for (int length = 1; length <= title.length(); length++) {
+				typed.add(title.substring(0, length));
+			}
+			typed.add(MovieSearchIndexTests.typo(titles.get(random.nextInt(titles.size())), random));
+		}
+		queries = typed.toArray(String[]::new);
+	}
+
+	@Benchmark
+	public List<MovieSearchIndex.Hit> search() {
+		String query = queries[next];
+		next = next + 1 == queries.length ? 0 : next + 1;
+		return index.search(query, 10);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(MovieSearchIndexBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
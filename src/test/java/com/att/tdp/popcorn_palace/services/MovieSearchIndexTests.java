@@ -0,0 +1,162 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.att.tdp.popcorn_palace.entities.Movie;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Type-ahead over half a million generated titles, plus a few real ones to check the ranking against.
+public class MovieSearchIndexTests {
+
+	private static final int TITLES = 500_000;
+	private static final String[] GENRES = {"Drama", "Comedy", "Action", "Horror", "Science Fiction", "Documentary"};
+	private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "ten", "vo", "zu", "bel", "dor", "fin",
+			"gar", "hu", "jo", "lis", "mor", "nal", "pe", "qui", "sor", "tal", "ul", "ven", "wy", "xan", "yor"};
+
+	private static MovieSearchIndex index;
+	private static List<String> titles;
+	private static long nextId = 1;
+
+	@BeforeAll
+	static void setup() {
+		index = new MovieSearchIndex(null, null);
+		Random random = new Random(42);
+		titles = generateTitles(random);
+
+		long started = System.nanoTime();
+		fill(index, titles, random);
+		System.out.println("--- indexed " + index.size() + " titles in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+	}
+
+	// Titles of one to four words from a vocabulary of made-up words of two to four syllables.
+	static List<String> generateTitles(Random random) {
+		String[] vocabulary = new String[20_000];
+		for (int i = 0; i < vocabulary.length; i++) {
+			StringBuilder word = new StringBuilder();
+			for (int s = 2 + random.nextInt(3); s > 0; s--) {
+				word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+			}
+			vocabulary[i] = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+		}
+		Set<String> unique = new LinkedHashSet<>();
+		while (unique.size() < TITLES) {
+			StringBuilder title = new StringBuilder(vocabulary[random.nextInt(vocabulary.length)]);
+			for (int w = random.nextInt(4); w > 0; w--) {
+				title.append(' ').append(vocabulary[random.nextInt(vocabulary.length)]);
+			}
+			unique.add(title.toString());
+		}
+		return new ArrayList<>(unique);
+	}
+
+	// Indexes the generated titles with random genres and ratings, and a few real ones.
+	static void fill(MovieSearchIndex index, List<String> titles, Random random) {
+		for (String title : titles) {
+			index.put(movie(title, GENRES[random.nextInt(GENRES.length)], random.nextInt(101) / 10.0));
+		}
+		for (String title : List.of("The Matrix", "The Matrix Reloaded", "Star Wars", "Star Trek", "Spider-Man: No Way Home")) {
+			index.put(movie(title, "Science Fiction", 8.0));
+		}
+	}
+
+	// The test classes share a JVM; don't keep half a million titles alive for the rest of them.
+	@AfterAll
+	static void release() {
+		index = null;
+		titles = null;
+	}
+
+	@Test
+	void testRankingPrefixesGenresAndTypos() {
+		// Exact title, then titles starting with it.
+		assertEquals(List.of("The Matrix", "The Matrix Reloaded"), titlesOf(index.search("  the   MATRIX ", 10)));
+		assertEquals(List.of("Spider-Man: No Way Home"), titlesOf(index.search("spider man", 10)));
+		assertEquals("Star Trek", titlesOf(index.search("star tr", 10)).get(0));
+
+		// A genre-only query matches through genre words, a typo through trigrams.
+		List<MovieSearchIndex.Hit> documentaries = index.search("documentary", 20);
+		assertEquals(20, documentaries.size());
+		assertTrue(documentaries.stream().allMatch(hit -> hit.genre().equals("Documentary")));
+		assertEquals("The Matrix", titlesOf(index.search("the matrx", 10)).get(0));
+
+		// A long generated title is found from its first letters and from a typo in it.
+		String title = titles.stream().filter(t -> t.split(" ").length == 4).findFirst().orElseThrow();
+		assertTrue(titlesOf(index.search(title.substring(0, title.length() - 3), 50)).contains(title));
+		assertTrue(titlesOf(index.search(typo(title, new Random(7)), 50)).contains(title));
+	}
+
+	@Test
+	void testUpdatesAndRemovalsAreSearchableRightAway() {
+		Movie movie = movie("Popcorn Palace Premiere", "Documentary", 9.9);
+		index.put(movie);
+		assertEquals("Popcorn Palace Premiere", titlesOf(index.search("popcorn pal", 5)).get(0));
+
+		movie.setTitle("Popcorn Palace Encore");
+		index.put(movie);
+		assertEquals(List.of("Popcorn Palace Encore"), titlesOf(index.search("popcorn palace", 5)));
+
+		index.remove(movie.getId());
+		assertFalse(titlesOf(index.search("popcorn palace", 5)).contains("Popcorn Palace Encore"));
+	}
+
+	@Test
+	void testChurnDoesNotGrowTheIndex() {
+		MovieSearchIndex small = new MovieSearchIndex(null, null);
+		List<Movie> movies = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			movies.add(movie("Churned Feature " + i, "Drama", 5.0));
+			small.put(movies.get(i));
+		}
+
+		// Re-index every movie under ever new titles, many times over.
+		for (int round = 0; round < 200; round++) {
+			for (Movie movie : movies) {
+				movie.setTitle("Churned Feature " + movie.getId() + " Take" + round);
+				small.put(movie);
+			}
+			assertTrue(small.slotCount() <= 100 + 1_024, "slots " + small.slotCount());
+		}
+		small.remove(movies.get(0).getId());
+
+		assertEquals(99, small.size());
+		Movie last = movies.get(99);
+		assertEquals(List.of(last.getTitle()), titlesOf(small.search(last.getTitle(), 5)));
+		assertEquals(List.of(last.getTitle()), titlesOf(small.search("churned feature " + last.getId() + " takx199", 5)));
+	}
+
+	private static Movie movie(String title, String genre, double rating) {
+		return new Movie(nextId++, title, genre, 100, rating, 2000);
+	}
+
+	private static List<String> titlesOf(List<MovieSearchIndex.Hit> hits) {
+		return hits.stream().map(MovieSearchIndex.Hit::title).toList();
+	}
+
+	// Replaces one letter of the title's longest word.
+	static String typo(String title, Random random) {
+		String[] words = title.split(" ");
+		int longest = 0;
+		for (int i = 1; i < words.length; i++) {
+			if (words[i].length() > words[longest].length()) {
+				longest = i;
+			}
+		}
+		char[] word = words[longest].toCharArray();
+		int position = 1 + random.nextInt(word.length - 1);
+		word[position] = word[position] == 'x' ? 'y' : 'x';
+		words[longest] = new String(word);
+		return String.join(" ", words);
+	}
+}
@@ -0,0 +1,149 @@
+package com.att.tdp.popcorn_palace.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An on-sale rush against a running server: many users join a showtime's waiting room within a short window, poll
+ * their positions as told, and book a random free seat once admitted. Prints the queue and the booking rate once
+ * a second.
+ * <p>
+ * Not run by the build. Start the application, create a showtime and open its waiting room with
+ * {@code PUT /admin/waiting-room/showtimes/{id}}, then run {@link #main} with the test classpath:
+ * {@code WaitingRoomLoadGenerator <showtimeId> [users] [arrivalSeconds] [baseUrl]}.
+ */
+public class WaitingRoomLoadGenerator {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+	private final String baseUrl;
+	private final long showtimeId;
+	private final int capacity;
+
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final LongAdder polls = new LongAdder();
+	private final LongAdder booked = new LongAdder();
+	private final LongAdder conflicts = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	private WaitingRoomLoadGenerator(String baseUrl, long showtimeId, int capacity) {
+		this.baseUrl = baseUrl;
+		this.showtimeId = showtimeId;
+		this.capacity = capacity;
+	}
+
+	public static void main(String[] args) throws Exception {
+		long showtimeId = Long.parseLong(args[0]);
+		int users = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+		long arrivalMillis = TimeUnit.SECONDS.toMillis(args.length > 2 ? Long.parseLong(args[2]) : 60);
+		String baseUrl = args.length > 3 ? args[3] : "http://localhost:8080";
+
+		HttpResponse<String> seats = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create(baseUrl + "/showtimes/" + showtimeId + "/seats")).build(),
+				HttpResponse.BodyHandlers.ofString());
+		int capacity = MAPPER.readTree(seats.body()).get("capacity").asInt();
+		new WaitingRoomLoadGenerator(baseUrl, showtimeId, capacity).run(users, arrivalMillis);
+	}
+
+	private void run(int users, long arrivalMillis) throws InterruptedException {
+		long started = System.nanoTime();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			// Arrivals are spread uniformly over the window.
+			for (int i = 0; i < users; i++) {
+				long arrival = arrivalMillis * i / users;
+				executor.submit(() -> {
+					Thread.sleep(arrival);
+					user(UUID.randomUUID());
+					return null;
+				});
+			}
+			executor.shutdown();
+
+			long lastBooked = 0;
+			long lastPolls = 0;
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				long nowBooked = booked.sum() + conflicts.sum();
+				long nowPolls = polls.sum();
+				System.out.printf("%4d s: %6d waiting, %5d bookings/s, %6d polls/s, %d booked, %d conflicts, %d failed%n",
+						TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started), waiting.get(),
+						nowBooked - lastBooked, nowPolls - lastPolls, booked.sum(), conflicts.sum(), failed.sum());
+				lastBooked = nowBooked;
+				lastPolls = nowPolls;
+			}
+		}
+		System.out.printf("Done in %d s: %d booked, %d conflicts, %d failed%n",
+				TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started), booked.sum(), conflicts.sum(), failed.sum());
+	}
+
+	private void user(UUID userId) throws IOException, InterruptedException {
+		JsonNode ticket = json(post("/bookings/queue",
+				"{ \"showtimeId\": " + showtimeId + ", \"userId\": \"" + userId + "\" }", null));
+		if (ticket == null) {
+			failed.increment();
+			return;
+		}
+		String token = ticket.get("token").isNull() ? null : ticket.get("token").asText();
+
+		waiting.incrementAndGet();
+		try {
+			while (!ticket.get("admitted").asBoolean()) {
+				Thread.sleep(ticket.get("retryAfterMillis").asLong());
+				polls.increment();
+				ticket = json(client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/bookings/queue"))
+						.header(WaitingRoomService.TOKEN_HEADER, token)
+						.build(), HttpResponse.BodyHandlers.ofString()));
+				if (ticket == null) {
+					failed.increment();
+					return;
+				}
+			}
+		} finally {
+			waiting.decrementAndGet();
+		}
+
+		// Try a few random seats, as a user picking from a seat map that is going stale would.
+		for (int attempt = 0; attempt < 3; attempt++) {
+			int seat = 1 + ThreadLocalRandom.current().nextInt(capacity);
+			HttpResponse<String> response = post("/bookings",
+					"{ \"showtimeId\": " + showtimeId + ", \"seatNumber\": " + seat + ", \"userId\": \"" + userId + "\" }",
+					token);
+			if (response.statusCode() == 200) {
+				booked.increment();
+				return;
+			}
+			if (response.statusCode() != 409) {
+				failed.increment();
+				return;
+			}
+			conflicts.increment();
+		}
+	}
+
+	private HttpResponse<String> post(String path, String body, String token) throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body));
+		if (token != null) {
+			request.header(WaitingRoomService.TOKEN_HEADER, token);
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static JsonNode json(HttpResponse<String> response) throws IOException {
+		return response.statusCode() == 200 ? MAPPER.readTree(response.body()) : null;
+	}
+}
@@ -0,0 +1,162 @@
+package com.att.tdp.popcorn_palace.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The waiting room with time driven by the test, and a booking path simulated in it.
+public class WaitingRoomServiceTests {
+
+	private static final long TICK = TimeUnit.MILLISECONDS.toNanos(100);
+
+	// No ticker thread: the tests call tick() themselves.
+	private final WaitingRoomService rooms = new WaitingRoomService("test-secret", 20, 1000, 1.25, 1, 0, 120);
+	private long now = System.nanoTime();
+
+	@AfterEach
+	void shutdown() {
+		rooms.shutdown();
+	}
+
+	@Test
+	void testTokensAreBoundToUserShowtimeAndRoom() {
+		UUID user = UUID.randomUUID();
+		UUID other = UUID.randomUUID();
+
+		// Without a waiting room, bookings go ahead and joining needs no token.
+		assertEquals(WaitingRoomService.Admission.OPEN, rooms.admit(1L, user, null));
+		WaitingRoomService.QueueTicket open = rooms.join(1L, user);
+		assertNull(open.token());
+		assertTrue(open.admitted());
+
+		rooms.open(1L, null, null);
+		rooms.open(2L, null, null);
+		String token = rooms.join(1L, user).token();
+		assertNotNull(token);
+		assertEquals(WaitingRoomService.Admission.WAITING, rooms.admit(1L, user, token));
+		assertEquals(WaitingRoomService.Admission.REJECTED, rooms.admit(1L, user, null));
+		assertEquals(WaitingRoomService.Admission.REJECTED, rooms.admit(1L, other, token));
+		assertEquals(WaitingRoomService.Admission.REJECTED, rooms.admit(2L, user, token));
+
+		// A tampered token is rejected.
+		char[] tampered = token.toCharArray();
+		tampered[20] = tampered[20] == 'A' ? 'B' : 'A';
+		assertEquals(WaitingRoomService.Admission.REJECTED, rooms.admit(1L, user, new String(tampered)));
+		assertNull(rooms.poll(new String(tampered)));
+		assertNull(rooms.poll("not a token"));
+
+		// Joining again keeps the place.
+		rooms.join(1L, other);
+		assertEquals(1, rooms.poll(rooms.join(1L, user).token()).position());
+		assertEquals(2, rooms.poll(rooms.join(1L, other).token()).position());
+
+		tick();
+		assertEquals(WaitingRoomService.Admission.ADMITTED, rooms.admit(1L, user, token));
+		assertTrue(rooms.poll(token).admitted());
+
+		// Reopening starts a new queue, so tokens of the old one are void.
+		rooms.close(1L);
+		assertEquals(WaitingRoomService.Admission.OPEN, rooms.admit(1L, user, token));
+		rooms.open(1L, null, null);
+		assertEquals(WaitingRoomService.Admission.REJECTED, rooms.admit(1L, user, token));
+		assertNull(rooms.poll(token));
+	}
+
+	@Test
+	void testPlacesAreAdmittedInOrder() {
+		rooms.open(1L, 10.0, 10.0);
+		List<UUID> users = new ArrayList<>();
+		List<String> tokens = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			users.add(UUID.randomUUID());
+			tokens.add(rooms.join(1L, users.get(i)).token());
+		}
+
+		// 10 per second: after 3 seconds, the first 30 are in.
+		for (int i = 0; i < 30; i++) {
+			tick();
+		}
+		for (int i = 0; i < 100; i++) {
+			WaitingRoomService.Admission expected = i < 30
+					? WaitingRoomService.Admission.ADMITTED
+					: WaitingRoomService.Admission.WAITING;
+			assertEquals(expected, rooms.admit(1L, users.get(i), tokens.get(i)), "place " + (i + 1));
+		}
+		WaitingRoomService.QueueTicket last = rooms.poll(tokens.get(99));
+		assertEquals(70, last.position());
+		assertFalse(last.admitted());
+		// About 7 s to go; the client is told to come back halfway.
+		assertTrue(last.retryAfterMillis() >= 3_000 && last.retryAfterMillis() <= 4_000, last.toString());
+	}
+
+	@Test
+	void testAdmissionRateFollowsBookingThroughput() {
+		// A booking path that can serve 200 bookings per second, and 20,000 users who arrived at once.
+		int capacityPerTick = 20;
+		rooms.open(1L, null, null);
+		List<UUID> users = new ArrayList<>();
+		List<String> tokens = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			users.add(UUID.randomUUID());
+			tokens.add(rooms.join(1L, users.get(i)).token());
+		}
+
+		int booked = 0;
+		int maxBacklog = 0;
+		for (int t = 1; t <= 300; t++) {
+			tick();
+			WaitingRoomService.RoomStatus status = rooms.getStatus(1L);
+			// Admitted users book right away, as fast as the booking path lets them.
+			for (int served = 0; served < capacityPerTick && booked < status.admitted(); served++) {
+				assertEquals(WaitingRoomService.Admission.ADMITTED, rooms.admit(1L, users.get(booked), tokens.get(booked)));
+				rooms.recordBooking(1L);
+				booked++;
+			}
+			maxBacklog = Math.max(maxBacklog, (int) status.admitted() - booked);
+			if (t % 50 == 0) {
+				System.out.println("--- waiting room after " + t / 10 + " s: " + status);
+			}
+		}
+
+		// The admission rate climbs to the throughput plus headroom and stays there; it doesn't flood the path.
+		WaitingRoomService.RoomStatus status = rooms.getStatus(1L);
+		assertEquals(200, status.bookingRate(), 5);
+		assertEquals(250, status.admissionRate(), 10);
+		assertTrue(booked > 4_000, "booked " + booked);
+		assertTrue(maxBacklog < 2_000, "backlog " + maxBacklog);
+	}
+
+	@Test
+	void testPollIsCheap() {
+		rooms.open(1L, null, null);
+		String token = rooms.join(1L, UUID.randomUUID()).token();
+		for (int i = 0; i < 200_000; i++) {
+			rooms.poll(token);
+		}
+
+		int polls = 500_000;
+		long started = System.nanoTime();
+		long positions = 0;
+		for (int i = 0; i < polls; i++) {
+			positions += rooms.poll(token).position();
+		}
+		long nanosPerPoll = (System.nanoTime() - started) / polls;
+		System.out.println("--- waiting room: " + nanosPerPoll + " ns per position poll (" + positions + ")");
+		assertTrue(nanosPerPoll < 20_000, nanosPerPoll + " ns");
+	}
+
+	private void tick() {
+		now += TICK;
+		rooms.tick(now);
+	}
+}
@@ -0,0 +1,56 @@
+package com.att.tdp.popcorn_palace.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title normalization, the regex-based way and the single-pass way, with allocation per call.
+ * <p>
+ * Not run by the build. After {@code mvn test-compile}, run {@link #main} with the test classpath, e.g. from the
+ * IDE, or {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main InputUtils}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputUtilsBenchmark {
+
+	// Already normalized, a hot name that needs work, and one too long to be cached.
+	@Param({"The Empire Strikes Back", "  the   empire\tstrikes back ",
+			"a very long and messy   title that goes on and on\tand on, well past the length of any name the cache would"
+					+ " keep, so that every call has to build a new string for it"})
+	private String input;
+
+	@Benchmark
+	public String legacy() {
+		return InputUtilsTests.legacyNormalizeString(input);
+	}
+
+	@Benchmark
+	public String singlePass() {
+		return InputUtils.normalizeString(input);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(InputUtilsBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
@@ -0,0 +1,97 @@
+package com.att.tdp.popcorn_palace.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The single-pass normalizer against the regex-based one it replaced.
+public class InputUtilsTests {
+
+	// Characters the random inputs are drawn from, beyond random BMP characters and supplementary code points.
+	private static final String TRICKY = " \t\n\u000B\f\r\u0000\u0001\u001F  　 \u0085"
+			+ "aZz09-'.ßÿǆǅΣσςиЖ𐀀􏿿";
+
+	@Test
+	void testMatchesLegacyOnRandomUnicode() {
+		Random random = new Random(42);
+		for (int i = 0; i < 500_000; i++) {
+			String input = randomString(random);
+			String expected = legacyNormalizeString(input);
+			assertEquals(expected, InputUtils.normalizeString(input), () -> "input " + escape(input));
+			// The second call may come from the cache.
+			assertEquals(expected, InputUtils.normalizeString(input), () -> "cached input " + escape(input));
+		}
+
+		assertEquals(null, InputUtils.normalizeString(null));
+		String longInput = " x".repeat(5_000) + "\t\t" + "y ".repeat(5_000);
+		assertEquals(legacyNormalizeString(longInput), InputUtils.normalizeString(longInput));
+	}
+
+	@Test
+	void testNormalizedAndHotNamesDoNotAllocate() {
+		String normalized = "The Empire Strikes Back";
+		String messy = "  the   empire\tstrikes back ";
+		String cached = InputUtils.normalizeString(messy);
+		for (int i = 0; i < 100_000; i++) {
+			InputUtils.normalizeString(normalized);
+			InputUtils.normalizeString(messy);
+		}
+
+		long allocated = allocatedBytes();
+		for (int i = 0; i < 100_000; i++) {
+			assertSame(normalized, InputUtils.normalizeString(normalized));
+			assertSame(cached, InputUtils.normalizeString(messy));
+		}
+		allocated = allocatedBytes() - allocated;
+		System.out.println("--- allocated for 200000 normalizations of known names: " + allocated + " bytes");
+		// Less than a byte per call: one String each would be several megabytes. The rest is the JIT at work.
+		assertTrue(allocated < 200_000, allocated + " bytes");
+	}
+
+	// The implementation before the single-pass one, kept as the reference for the test and the benchmark.
+	static String legacyNormalizeString(String input) {
+		if (input == null) {
+			return null;
+		}
+		String trimmed = input.trim().replaceAll("\\s+", " ");
+		String[] words = trimmed.split(" ");
+		StringBuilder sb = new StringBuilder();
+		for (String word : words) {
+			if (!word.isEmpty()) {
+				sb.append(Character.toUpperCase(word.charAt(0)))
+						.append(word.substring(1))
+						.append(" ");
+			}
+		}
+		return sb.toString().trim();
+	}
+
+	private static String randomString(Random random) {
+		StringBuilder sb = new StringBuilder();
+		for (int length = random.nextInt(24); length > 0; length--) {
+			switch (random.nextInt(4)) {
+				case 0 -> sb.appendCodePoint(Character.MIN_SUPPLEMENTARY_CODE_POINT
+						+ random.nextInt(Character.MAX_CODE_POINT - Character.MIN_SUPPLEMENTARY_CODE_POINT));
+				case 1 -> sb.append((char) random.nextInt(Character.MAX_VALUE + 1));
+				default -> sb.append(TRICKY.charAt(random.nextInt(TRICKY.length())));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String escape(String input) {
+		StringBuilder sb = new StringBuilder();
+		input.chars().forEach(c -> sb.append(String.format("\\u%04X", c)));
+		return sb.toString();
+	}
+
+	// Bytes allocated so far by the calling thread.
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+}
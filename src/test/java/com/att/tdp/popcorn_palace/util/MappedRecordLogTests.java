@@ -0,0 +1,48 @@
+package com.att.tdp.popcorn_palace.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedRecordLogTests {
+
+	@Test
+	void testRecordsAreOnlyDurableOnceForced(@TempDir Path directory) throws Exception {
+		AtomicBoolean failing = new AtomicBoolean(true);
+		List<Integer> forcedFrom = new CopyOnWriteArrayList<>();
+		try (MappedRecordLog log = new MappedRecordLog(directory, Long.BYTES, 64, 100) {
+			@Override
+			void force(MappedByteBuffer buffer, int index, int length) {
+				if (failing.get()) {
+					throw new UncheckedIOException(new IOException("Disk is failing"));
+				}
+				forcedFrom.add(index);
+				super.force(buffer, index, length);
+			}
+		}) {
+			// While the disk fails, nothing is acknowledged, however many flushes go by.
+			long first = log.append(buffer -> buffer.putLong(1));
+			assertThrows(TimeoutException.class, () -> log.awaitDurable(first, 200));
+			long second = log.append(buffer -> buffer.putLong(2));
+			assertThrows(TimeoutException.class, () -> log.awaitDurable(second, 200));
+			assertEquals(0, log.getDurableSequence());
+
+			// Once it recovers, the next force covers the records the failed ones didn't.
+			failing.set(false);
+			log.awaitDurable(second, 5_000);
+			assertEquals(second, log.getDurableSequence());
+			assertEquals(0, forcedFrom.get(0));
+		}
+	}
+}
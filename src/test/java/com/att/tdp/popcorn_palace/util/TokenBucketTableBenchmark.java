@@ -0,0 +1,61 @@
+package com.att.tdp.popcorn_palace.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One rate limit check: 4,096 keys at 1,000 per second with a burst of 10, from one thread and from four sharing
+ * the table.
+ * <p>
+ * Not run by the build. After {@code mvn test-compile}, run {@link #main} with the test classpath, e.g. from the
+ * IDE, or {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main TokenBucketTable}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBucketTableBenchmark {
+
+	private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1) / 1_000;
+
+	private final TokenBucketTable table = new TokenBucketTable(65_536);
+
+	@State(Scope.Thread)
+	public static class Keys {
+		private long next;
+	}
+
+	@Benchmark
+	public long tryAcquire(Keys keys) {
+		return table.tryAcquire(keys.next++ & 4095, INTERVAL, 10, System.nanoTime());
+	}
+
+	@Benchmark
+	@Threads(4)
+	public long tryAcquireContended(Keys keys) {
+		return table.tryAcquire(keys.next++ & 4095, INTERVAL, 10, System.nanoTime());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(TokenBucketTableBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
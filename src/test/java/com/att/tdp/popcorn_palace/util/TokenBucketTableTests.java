@@ -0,0 +1,58 @@
+package com.att.tdp.popcorn_palace.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketTableTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void testBurstThenRefillAtRate() {
+		TokenBucketTable table = new TokenBucketTable(64);
+		long interval = SECOND / 2; // 2 per second
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, table.tryAcquire(7, interval, 3, 0));
+		}
+		// Empty: the next token comes after one interval.
+		assertEquals(interval, table.tryAcquire(7, interval, 3, 0));
+		assertEquals(interval / 2, table.tryAcquire(7, interval, 3, interval / 2));
+		assertEquals(0, table.tryAcquire(7, interval, 3, interval));
+		assertTrue(table.tryAcquire(7, interval, 3, interval) > 0);
+
+		// Other keys have their own buckets.
+		assertEquals(0, table.tryAcquire(8, interval, 3, interval));
+
+		// A long idle period refills up to the burst, not beyond.
+		long later = 100 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, table.tryAcquire(7, interval, 3, later));
+		}
+		assertTrue(table.tryAcquire(7, interval, 3, later) > 0);
+	}
+
+	@Test
+	void testMemoryStaysBoundedAndIdleKeysAreReused() {
+		TokenBucketTable table = new TokenBucketTable(1_000);
+		assertEquals(1_024, table.getMaxKeys());
+
+		// Far more keys than slots: each gets a bucket, evicting idle ones.
+		long interval = SECOND;
+		for (long key = 0; key < 100_000; key++) {
+			assertEquals(0, table.tryAcquire(key, interval, 1, key * SECOND));
+		}
+
+		// A key that is limiting right now keeps its bucket while idle keys come and go around it.
+		long now = 200_000 * SECOND;
+		assertEquals(0, table.tryAcquire(-1, interval, 1, now));
+		for (long key = 0; key < 100; key++) {
+			table.tryAcquire(key, interval, 1, now);
+		}
+		assertTrue(table.tryAcquire(-1, interval, 1, now) > 0);
+	}
+}